@@ -3,6 +3,10 @@ package ci553.happyshop.catalogue;
 import ci553.happyshop.orderManagement.OrderState;
 import ci553.happyshop.utility.ProductListFormatter;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 /**
@@ -31,9 +35,12 @@ import java.util.ArrayList;
  */
 
 public class Order {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private int orderId;
     private OrderState state;
-    private String orderedDateTime="";
+    private long orderedMillis = 0;   // epoch millis, 0 when the order was made from its text form
+    private String orderedDateTime;   // built from orderedMillis when first asked for
     private String progressingDateTime="";
     private String collectedDateTime="";
     private ArrayList<Product> productList = new ArrayList<>(); //Trolley
@@ -47,10 +54,33 @@ public class Order {
         this.productList = new ArrayList<>(productList);
     }
 
+    // Constructor used by OrderHub with the order time as epoch millis; it is only formatted if someone asks for it.
+    public Order(int orderId, OrderState state, long orderedMillis, ArrayList<Product> productList) {
+        this(orderId, state, (String) null, productList);
+        this.orderedMillis = orderedMillis;
+    }
+
+    // Constructor used when an order is read back from storage (eg. by OrderCodec), with all three timestamps.
+    public Order(int orderId, OrderState state, long orderedMillis, String progressingDateTime,
+                 String collectedDateTime, ArrayList<Product> productList) {
+        this(orderId, state, orderedMillis, productList);
+        this.progressingDateTime = progressingDateTime;
+        this.collectedDateTime = collectedDateTime;
+    }
+
     //a set of getter methods
     public int getOrderId() { return orderId;}
     public OrderState getState() { return state; }
-    public String getOrderedDateTime(){ return orderedDateTime; }
+    public long getOrderedMillis() { return orderedMillis; }
+    public String getOrderedDateTime() {
+        if (orderedDateTime == null) {
+            orderedDateTime = orderedMillis == 0 ? "" : LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(orderedMillis), ZoneId.systemDefault()).format(TIME_FORMAT);
+        }
+        return orderedDateTime;
+    }
+    public String getProgressingDateTime(){ return progressingDateTime; }
+    public String getCollectedDateTime(){ return collectedDateTime; }
     public ArrayList<Product> getProductList() {
         return productList;
     }
@@ -71,7 +101,7 @@ public class Order {
                         "Items:\n%s",
                 orderId,
                 state,
-                orderedDateTime,
+                getOrderedDateTime(),
                 progressingDateTime,
                 collectedDateTime,
                 ProductListFormatter.buildString(productList)
@@ -4,6 +4,7 @@ import ci553.happyshop.client.customer.*;
 
 import ci553.happyshop.client.emergency.EmergencyExit;
 import ci553.happyshop.client.orderTracker.OrderTracker;
+import ci553.happyshop.client.orderTracker.SalesDashboard;
 import ci553.happyshop.client.picker.PickerController;
 import ci553.happyshop.client.picker.PickerModel;
 import ci553.happyshop.client.picker.PickerView;
@@ -20,7 +21,7 @@ import java.io.IOException;
  * The Main JavaFX application class. The Main class is executable directly.
  * It serves as a foundation for UI logic and starts all the clients (UI) in one go.
  *
- * This class launches all standalone clients (Customer, Picker, OrderTracker, Warehouse, EmergencyExit)
+ * This class launches all standalone clients (Customer, Picker, OrderTracker, SalesDashboard, Warehouse, EmergencyExit)
  * and links them together into a fully working system.
  *
  * It performs essential setup tasks, such as initializing the order map in the OrderHub
@@ -49,6 +50,7 @@ public class Main extends Application {
         startCustomerClient();
         startPickerClient();
         startOrderTracker();
+        startSalesDashboard();
 
         // Initializes the order map for the OrderHub. This must be called after starting the observer clients
         // (such as OrderTracker and Picker clients) to ensure they are properly registered for receiving updates.
@@ -114,6 +116,12 @@ public class Main extends Application {
         orderTracker.registerWithOrderHub();
     }
 
+    //The SalesDashboard GUI - read-only live sales figures for managers, next to the OrderTrackers.
+    //The figures are kept by OrderHub's SalesAggregator; the dashboard only displays them.
+    private void startSalesDashboard(){
+        new SalesDashboard();
+    }
+
     //initialize the orderMap<orderId, orderState> for OrderHub during system startup
     private void initializeOrderMap(){
         OrderHub orderHub = OrderHub.getOrderHub();
@@ -125,7 +133,7 @@ public class Main extends Application {
      * It also creates the DatabaseRW instance via the DatabaseRWFactory and injects it into the Model.
      * Once the components are linked, the warehouse interface (view) is started.
      *
-     * Also creates the dependent HistoryWindow and AlertSimulator,
+     * Also creates the dependent HistoryWindow, AlertSimulator and OrderQueryWindow,
      * which track the position of the Warehouse window and are triggered by the Model when needed.
      * These components are linked after launching the Warehouse interface.
      */
@@ -145,12 +153,15 @@ public class Main extends Application {
         //create dependent views that need window info
         HistoryWindow historyWindow = new HistoryWindow();
         AlertSimulator alertSimulator = new AlertSimulator();
+        OrderQueryWindow orderQueryWindow = new OrderQueryWindow();
 
         // Link after start
         model.historyWindow = historyWindow;
         model.alertSimulator = alertSimulator;
+        model.orderQueryWindow = orderQueryWindow;
         historyWindow.warehouseView = view;
         alertSimulator.warehouseView = view;
+        orderQueryWindow.warehouseView = view;
     }
 
     //starts the EmergencyExit GUI, - used to close the entire application immediatelly
@@ -25,8 +25,18 @@ public class CustomerController {
             case "OK & Close":
                 cusModel.closeReceipt();
                 break;
+            case "Load More": // the last product of the search results was scrolled into sight
+                cusModel.loadMoreResults();
+                break;
+        }
+    }
+    // Called on every keystroke in the search field; the model debounces the lookups.
+    public void requestSuggestions(String input) {
+        if (cusModel != null) {
+            cusModel.requestSuggestions(input);
         }
     }
+
     /**
      * Called when the user selects a product from the search ListView in CustomerView.
      * This sets the current product in the model and refreshes the preview.
@@ -4,8 +4,10 @@ import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.utility.AppLogger;
 import ci553.happyshop.utility.StorageLocation;
 import ci553.happyshop.utility.ProductListFormatter;
+import javafx.application.Platform;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -13,7 +15,12 @@ import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TODO
@@ -21,6 +28,8 @@ import java.util.Map;
  * or create a subclass of CustomerModel and override specific methods where appropriate.
  */
 public class CustomerModel {
+    private static final AppLogger log = AppLogger.getLogger(CustomerModel.class);
+
     public CustomerView cusView;
     public DatabaseRW databaseRW; //Interface type, not specific implementation
                                   //Benefits: Flexibility: Easily change the database implementation.
@@ -35,6 +44,25 @@ public class CustomerModel {
     private String displayTaReceipt = "";                                // Text area content showing receipt after checkout (Receipt Page)
     public RemoveProductNotifier removeProductNotifier;                  // Updated notifier when stock is shortage
 
+    // Description search results are loaded one page at a time, more pages as the customer scrolls
+    public static int searchPageSize = 20;
+    private String pagedQuery = null;  // the description search being paged, null when there is nothing to page
+    private int pageOffset = 0;        // how many results are loaded
+    private String pageCursor = null;  // productID of the last product loaded
+    private boolean morePages = false; // false once a short page was loaded
+
+    // Type-ahead suggestions: a lookup runs only once the customer stops typing for suggestionDelayMillis
+    public static long suggestionDelayMillis = 150;
+    public static int suggestionLimit = 8;
+    private static final ScheduledExecutorService suggestionScheduler =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "customer-suggestions");
+                t.setDaemon(true); // must not keep the application alive
+                return t;
+            });
+    private ScheduledFuture<?> pendingSuggestion; // the lookup waiting for the debounce delay
+    private long suggestionRequestNo = 0;         // only the newest request may update the view
+
     //SELECT productID, description, image, unitPrice,inStock quantity
     void search() throws SQLException {
         // User can type either a Product ID or a Name into the ID field
@@ -47,10 +75,13 @@ public class CustomerModel {
             input = "";
         }
 
+        pagedQuery = null;
+        morePages = false;
+
         if (input.isEmpty()) {
             theProduct = null;
             displayLaSearchResult = "Please type ProductID or Name";
-            System.out.println("Please type ProductID or Name.");
+            log.info("Please type ProductID or Name.");
 
             // clear search results list
             cusView.updateSearchResults(new ArrayList<>());
@@ -82,13 +113,24 @@ public class CustomerModel {
             singleList.add(foundById);
             cusView.updateSearchResults(singleList);
 
-            System.out.println(displayLaSearchResult);
+            log.debug("%s", displayLaSearchResult);
             updateView();
             return;
         }
 
-        // 2) If not found by ID (or out of stock), try search by Name/Keyword
-        ArrayList<Product> resultList = databaseRW.searchProduct(input);
+        // 2) If not found by ID (or out of stock), search the descriptions for all the typed words.
+        //    Best matches first; only the first page is loaded here, the view asks for more pages by loadMoreResults()
+        ArrayList<Product> resultList = databaseRW.searchByDescriptionRanked(input, 0, null, searchPageSize);
+        if (resultList != null && !resultList.isEmpty()) {
+            pagedQuery = input;
+            pageOffset = resultList.size();
+            pageCursor = resultList.getLast().getProductId();
+            morePages = resultList.size() >= searchPageSize;
+        }
+        if ((resultList == null || resultList.isEmpty()) && foundById != null) {
+            resultList = new ArrayList<>();
+            resultList.add(foundById); // out of stock, but still show what the ID refers to
+        }
 
         if (resultList != null && !resultList.isEmpty()) {
             // Use the first product as the selected one
@@ -108,13 +150,14 @@ public class CustomerModel {
             displayLaSearchResult = baseInfo + quantityInfo;
 
             // Update the list like WarehouseView
+            cusView.moreResults = morePages;
             cusView.updateSearchResults(resultList);
 
-            System.out.println(displayLaSearchResult);
+            log.debug("%s", displayLaSearchResult);
         } else {
             theProduct = null;
             displayLaSearchResult = "No Product was found with ID or Name \"" + input + "\"";
-            System.out.println(displayLaSearchResult);
+            log.debug("%s", displayLaSearchResult);
 
             cusView.updateSearchResults(new ArrayList<>());
         }
@@ -123,6 +166,58 @@ public class CustomerModel {
     }
 
 
+    /**
+     * Loads the next page of the current description search and appends it to the view's list.
+     * Called by the view when the last loaded product is scrolled into sight.
+     */
+    void loadMoreResults() throws SQLException {
+        if (pagedQuery == null || !morePages) {
+            return;
+        }
+        ArrayList<Product> page = databaseRW.searchByDescriptionRanked(pagedQuery, pageOffset, pageCursor, searchPageSize);
+        morePages = page.size() >= searchPageSize;
+        pageOffset += page.size();
+        if (!page.isEmpty()) {
+            pageCursor = page.getLast().getProductId();
+        }
+        cusView.appendSearchResults(page, morePages);
+    }
+
+    /**
+     * Called by the view on every keystroke in the search field.
+     * Each call cancels the previous pending lookup, so only the last input within the debounce delay
+     * is looked up. The last word of the input is completed, eg "usb ch" → "usb charger", "usb chair".
+     * The lookup is answered from memory (DatabaseRW.suggest) and the result is shown on the JavaFX thread.
+     */
+    void requestSuggestions(String input) {
+        if (pendingSuggestion != null) {
+            pendingSuggestion.cancel(false);
+        }
+        long requestNo = ++suggestionRequestNo;
+        String text = input == null ? "" : input.stripLeading();
+        int lastSpace = text.lastIndexOf(' ');
+        String head = text.substring(0, lastSpace + 1);  // words already typed, kept as they are
+        String lastWord = text.substring(lastSpace + 1); // the word being completed
+
+        if (lastWord.isEmpty()) {
+            pendingSuggestion = null;
+            cusView.showSuggestions(new ArrayList<>());
+            return;
+        }
+        pendingSuggestion = suggestionScheduler.schedule(() -> {
+            List<String> terms = databaseRW.suggest(lastWord, suggestionLimit);
+            ArrayList<String> suggestions = new ArrayList<>();
+            for (String term : terms) {
+                suggestions.add(head + term);
+            }
+            Platform.runLater(() -> {
+                if (requestNo == suggestionRequestNo) { // ignore results overtaken by newer typing
+                    cusView.showSuggestions(suggestions);
+                }
+            });
+        }, suggestionDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
     void addToTrolley(){
         if(theProduct!= null){
 
@@ -137,7 +232,7 @@ public class CustomerModel {
         }
         else{
             displayLaSearchResult = "Please search for an available product before adding it to the trolley";
-            System.out.println("must search and get an available product before add to trolley");
+            log.info("must search and get an available product before add to trolley");
         }
         displayTaReceipt=""; // Clear receipt to switch back to trolleyPage (receipt shows only when not empty)
         updateView();
@@ -200,7 +295,7 @@ public class CustomerModel {
                         theOrder.getOrderedDateTime(),
                         ProductListFormatter.buildString(theOrder.getProductList())
                 );
-                System.out.println(displayTaReceipt);
+                log.info("%s", displayTaReceipt);
             }
             else{ // Some products have insufficient stock — build an error message to inform the customer
                 StringBuilder errorMsg = new StringBuilder();
@@ -232,12 +327,12 @@ public class CustomerModel {
                     displayLaSearchResult = fullMsg;
                 }
 
-                System.out.println("stock is not enough");
+                log.info("stock is not enough");
             }
         }
         else{
             displayTaTrolley = "Your trolley is empty";
-            System.out.println("Your trolley is empty");
+            log.info("Your trolley is empty");
         }
         updateView();
     }
@@ -283,7 +378,7 @@ public class CustomerModel {
             // Get the full absolute path to the image
             Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
             imageName = imageFullPath.toUri().toString(); //get the image full Uri then convert to String
-            System.out.println("Image absolute path: " + imageFullPath); // Debugging to ensure path is correct
+            log.debug("Image absolute path: %s", imageFullPath); // Debugging to ensure path is correct
         }
         else{
             imageName = "imageHolder.jpg";
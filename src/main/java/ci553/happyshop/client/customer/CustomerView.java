@@ -5,8 +5,10 @@ import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
 import ci553.happyshop.utility.WindowBounds;
 import ci553.happyshop.catalogue.Product;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ListView;
@@ -25,6 +27,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The CustomerView is separated into two sections by a line :
@@ -58,6 +61,12 @@ public class CustomerView  {
     private Label laSearchSummary;
     private ObservableList<Product> obProductList;
     private ListView<Product> lvProducts;
+    boolean moreResults = false;        // set by CustomerModel: more pages of the search can be loaded
+    private boolean loadingMore = false; // a "Load More" request is pending
+
+    // Type-ahead suggestions shown under tfId
+    private ContextMenu suggestionMenu;
+    private boolean fillingSuggestion = false; // true while tfId is set from a suggestion, so no new lookup starts
 
     // Holds a reference to this CustomerView window for future access and management
     // (e.g., positioning the removeProductNotifier when needed).
@@ -104,6 +113,17 @@ public class CustomerView  {
         // Pressing Enter = Search
         tfId.setOnAction(this::buttonClicked);
 
+        // Ask for suggestions on every keystroke (the model waits until typing pauses)
+        suggestionMenu = new ContextMenu();
+        tfId.textProperty().addListener((obs, oldText, newText) -> {
+            if (!fillingSuggestion && cusController != null) {
+                cusController.requestSuggestions(newText);
+            }
+        });
+        tfId.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused) suggestionMenu.hide();
+        });
+
         Button btnSearch = new Button("Search");
         btnSearch.setStyle(UIStyle.buttonStyle);
         btnSearch.setMinWidth(70);
@@ -158,6 +178,12 @@ public class CustomerView  {
                     Label laProToString = new Label(product.toString());
                     HBox hbox = new HBox(10, ivPro, laProToString);
                     setGraphic(hbox);
+
+                    // lazy loading: the last loaded product is in sight, fetch the next page
+                    if (moreResults && !loadingMore && getIndex() == obProductList.size() - 1) {
+                        loadingMore = true;
+                        Platform.runLater(CustomerView.this::requestMoreResults); // not while the list is laid out
+                    }
                 }
             }
         });
@@ -200,17 +226,68 @@ public class CustomerView  {
 
 
     void updateSearchResults(ArrayList<Product> products) {
+        loadingMore = false;
         if (products == null || products.isEmpty()) {
+            moreResults = false;
             laSearchSummary.setText("0 products found");
             obProductList.clear();
         } else {
-            laSearchSummary.setText(products.size() + " products found");
             obProductList.setAll(products);
+            updateSearchSummary();
             // Auto-select the first product – this will also update the model via setSelectedProduct
             lvProducts.getSelectionModel().selectFirst();
         }
     }
 
+    // Appends the next page of search results, keeping the current selection and scroll position.
+    void appendSearchResults(ArrayList<Product> products, boolean more) {
+        moreResults = more;
+        loadingMore = false;
+        obProductList.addAll(products);
+        updateSearchSummary();
+    }
+
+    private void updateSearchSummary() {
+        laSearchSummary.setText(obProductList.size() + (moreResults ? "+ products found, scroll for more" : " products found"));
+    }
+
+    private void requestMoreResults() {
+        try {
+            cusController.doAction("Load More");
+        } catch (SQLException | IOException e) {
+            loadingMore = false;
+            e.printStackTrace();
+        }
+    }
+
+
+    // Shows the suggestions under tfId; choosing one fills tfId and searches for it.
+    void showSuggestions(List<String> suggestions) {
+        if (suggestions == null || suggestions.isEmpty() || !tfId.isFocused()) {
+            suggestionMenu.hide();
+            return;
+        }
+        ArrayList<MenuItem> items = new ArrayList<>();
+        for (String suggestion : suggestions) {
+            MenuItem item = new MenuItem(suggestion);
+            item.setOnAction(e -> {
+                fillingSuggestion = true;
+                tfId.setText(suggestion);
+                tfId.positionCaret(suggestion.length());
+                fillingSuggestion = false;
+                try {
+                    cusController.doAction("Search");
+                } catch (SQLException | IOException ex) {
+                    ex.printStackTrace();
+                }
+            });
+            items.add(item);
+        }
+        suggestionMenu.getItems().setAll(items);
+        if (!suggestionMenu.isShowing()) {
+            suggestionMenu.show(tfId, Side.BOTTOM, 0, 0);
+        }
+    }
 
     private VBox CreateTrolleyPage() {
         Label laPageTitle = new Label("🛒🛒  Trolley 🛒🛒");
@@ -277,6 +354,7 @@ public class CustomerView  {
             } else if (src instanceof TextField) {
                 // Enter in search field
                 action = "Search";
+                suggestionMenu.hide();
             } else {
                 return;
             }
@@ -1,43 +1,64 @@
 package ci553.happyshop.client.orderTracker;
 
+import ci553.happyshop.orderManagement.OrderEvent;
+import ci553.happyshop.orderManagement.OrderEventListener;
 import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderLatencyRecorder;
 import ci553.happyshop.orderManagement.OrderState;
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.ListView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 /**
  * OrderTracker class is for tracking orders and their states.
- * It displays an ordersMap(a list of orders with their associated states) in a TextArea.
- * The ordersMap data is received from the OrderHub.
+ * It displays an ordersMap(a list of orders with their associated states) in a ListView, one line per order.
+ * The order changes are received from the OrderHub as OrderEvents, on the JavaFX thread;
+ * each event changes only its own line, so the display is not rebuilt for every order.
+ * Below the list, it shows how long orders wait in each state (p50/p95/p99/max of the last interval,
+ * from OrderHub's OrderLatencyRecorder), refreshed every latencyRefreshMillis.
  */
 
-public class OrderTracker {
+public class OrderTracker implements OrderEventListener {
     private final int WIDTH = UIStyle.trackerWinWidth;
     private final int HEIGHT = UIStyle.trackerWinHeight;
+    public static long latencyRefreshMillis = 5_000;
 
-    // TreeMap (orderID,state) holding order IDs and their corresponding states.
-    private static final TreeMap<Integer, OrderState> ordersMap = new TreeMap<>();
-    private final TextArea taDisplay; //area to show all orderId and their state on the GUI
+    // The displayed lines, sorted by orderId, and the orderId of each line (at the same index).
+    private final ObservableList<String> orderLines = FXCollections.observableArrayList();
+    private final ArrayList<Integer> orderIds = new ArrayList<>();
+    private long lastSequence = 0; // number of the last OrderEvent applied
+    private final ListView<String> lvDisplay; //list to show all orderId and their state on the GUI
+    private final Label laLatency; //time orders spend in each state
 
-     //Constructor initializes the UI, a title Label, and a TextArea for displaying the order details.
+     //Constructor initializes the UI, a title Label, and a ListView for displaying the order details.
     public OrderTracker() {
         Label laTitle = new Label("Order_ID,  State");
         laTitle.setStyle(UIStyle.labelTitleStyle);
 
-        taDisplay = new TextArea();
-        taDisplay.setEditable(false);
-        taDisplay.setStyle(UIStyle.textFiledStyle);
+        lvDisplay = new ListView<>(orderLines);
+        lvDisplay.setStyle(UIStyle.textFiledStyle);
 
-        VBox vbox = new VBox(10,laTitle, taDisplay);
+        laLatency = new Label("No state changes yet");
+        laLatency.setStyle("-fx-font-size: 11px;");
+        laLatency.setWrapText(true);
+
+        VBox vbox = new VBox(10,laTitle, lvDisplay, laLatency);
         vbox.setAlignment(Pos.TOP_CENTER);
         vbox.setStyle(UIStyle. rootStyleGray);
 
@@ -49,6 +70,41 @@ public class OrderTracker {
         // Registers the window's position with WinPosManager.
         WinPosManager.registerWindow(window,WIDTH,HEIGHT); //calculate position x and y for this window
         window.show();
+
+        Timeline latencyRefresher = new Timeline(new KeyFrame(Duration.millis(latencyRefreshMillis),
+                event -> showLatencies()));
+        latencyRefresher.setCycleCount(Timeline.INDEFINITE);
+        latencyRefresher.play();
+        window.setOnHidden(event -> latencyRefresher.stop());
+    }
+
+    //Shows the latencies of the last interval, one transition per line, eg. "Ordered→Progressing n=12
+    //p50 40s p95 2m05s p99 3m max 3m10s"; since start-up if no interval has ended yet.
+    private void showLatencies() {
+        OrderLatencyRecorder recorder = OrderHub.getOrderHub().getLatencyRecorder();
+        List<OrderLatencyRecorder.Summary> summaries = recorder.lastIntervalSummaries();
+        if (summaries.isEmpty()) {
+            summaries = recorder.totalSummaries();
+        }
+        if (summaries.isEmpty()) return;
+        StringBuilder text = new StringBuilder();
+        for (OrderLatencyRecorder.Summary summary : summaries) {
+            text.append(summary.transition().label()).append(" n=").append(summary.count()).append('\n')
+                .append("  p50 ").append(formatMillis(summary.p50()))
+                .append(" p95 ").append(formatMillis(summary.p95()))
+                .append(" p99 ").append(formatMillis(summary.p99()))
+                .append(" max ").append(formatMillis(summary.max())).append('\n');
+        }
+        laLatency.setText(text.toString().trim());
+    }
+
+    //A duration in the largest fitting unit, eg. 850ms, 12s, 3m05s, 1h02m.
+    private static String formatMillis(long millis) {
+        if (millis < 1000) return millis + "ms";
+        long seconds = millis / 1000;
+        if (seconds < 60) return seconds + "s";
+        if (seconds < 3600) return String.format("%dm%02ds", seconds / 60, seconds % 60);
+        return String.format("%dh%02dm", seconds / 3600, seconds % 3600 / 60);
     }
 
     /**
@@ -61,26 +117,56 @@ public class OrderTracker {
     }
 
     /**
-     * Sets the order map with new data and refreshes the display.
-     * This method is called by OrderHub when order states are updated.
+     * Applies one order change to the display. Called by OrderHub.
+     * An event that does not follow the last one applied means events were missed: ask OrderHub for a snapshot.
      */
-    public void setOrderMap(TreeMap<Integer, OrderState> om) {
-        ordersMap.clear(); // Clears the current map to replace it with the new data.
-        ordersMap.putAll(om);// Adds all new order data to the map.
-        displayOrderMap();// Updates the display with the new order map.
+    @Override
+    public void orderChanged(OrderEvent event) {
+        if (event.sequence() <= lastSequence) return; // already part of a snapshot
+        if (event.sequence() != lastSequence + 1) {
+            OrderHub.getOrderHub().resync(this);
+            return;
+        }
+        lastSequence = event.sequence();
+        if (event.type() == OrderEvent.Type.REMOVED) {
+            for (int orderId : event.orderIds()) {
+                int index = Collections.binarySearch(orderIds, orderId);
+                if (index >= 0) {
+                    orderIds.remove(index);
+                    orderLines.remove(index);
+                }
+            }
+            return;
+        }
+        int index = Collections.binarySearch(orderIds, event.orderId());
+        if (index >= 0) {
+            orderLines.set(index, formatLine(event.orderId(), event.state()));
+        } else {
+            index = -index - 1; // insertion point
+            orderIds.add(index, event.orderId());
+            orderLines.add(index, formatLine(event.orderId(), event.state()));
+        }
     }
 
-     //Displays the current order map in the TextArea.
-     //Iterates over the ordersMap and formats each order ID and state for display.
-    private void displayOrderMap() {
-        StringBuilder sb = new StringBuilder();
-        for(Map.Entry<Integer, OrderState> entry : ordersMap.entrySet()) {
-            int orderId = entry.getKey();
-            OrderState orderState = entry.getValue();
-            sb.append(orderId).append(" ".repeat(5)).append(orderState).append("\n");
+    /**
+     * Replaces the displayed orders with a snapshot. Called by OrderHub at start-up and on resync.
+     */
+    @Override
+    public void setOrderMap(TreeMap<Integer, OrderState> om, long sequence) {
+        if (sequence < lastSequence) return; // an older snapshot than what is shown
+        ArrayList<String> lines = new ArrayList<>(om.size());
+        orderIds.clear();
+        for (Map.Entry<Integer, OrderState> entry : om.entrySet()) {
+            orderIds.add(entry.getKey());
+            lines.add(formatLine(entry.getKey(), entry.getValue()));
         }
-        String textDisplay = sb.toString();
-        taDisplay.setText(textDisplay);
+        orderLines.setAll(lines);
+        lastSequence = sequence;
+    }
+
+    //Formats one order ID and state for display.
+    private static String formatLine(int orderId, OrderState orderState) {
+        return orderId + " ".repeat(5) + orderState;
     }
 
 }
@@ -0,0 +1,102 @@
+package ci553.happyshop.client.orderTracker;
+
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.orderManagement.SalesAggregator;
+import ci553.happyshop.utility.UIStyle;
+import ci553.happyshop.utility.WinPosManager;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * SalesDashboard is a read-only window for managers, shown alongside the OrderTracker.
+ * It displays the live figures of OrderHub's SalesAggregator, refreshed every refreshMillis:
+ * - orders placed, started and collected in the sliding window (eg. the last 60 minutes),
+ * - revenue and units per product in the sliding window and in the current hour,
+ * - orders, units and revenue per clock hour.
+ * Like OrderTracker, it does not follow the MVC pattern: it only reads the figures.
+ */
+
+public class SalesDashboard {
+    private final int WIDTH = UIStyle.salesDashboardWinWidth;
+    private final int HEIGHT = UIStyle.salesDashboardWinHeight;
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("dd/MM HH:00");
+
+    public static long refreshMillis = 2_000; // how often the figures are redrawn
+
+    private final Label laStates;
+    private final ObservableList<String> productLines = FXCollections.observableArrayList();
+    private final ObservableList<String> hourLines = FXCollections.observableArrayList();
+
+    //Constructor initializes the UI: a line of state counts, a product list and an hour list.
+    public SalesDashboard() {
+        Label laTitle = new Label("Sales Dashboard");
+        laTitle.setStyle(UIStyle.labelTitleStyle);
+        laStates = new Label();
+        laStates.setStyle(UIStyle.labelStyle);
+
+        ListView<String> lvProducts = new ListView<>(productLines);
+        lvProducts.setStyle(UIStyle.listViewStyle);
+        ListView<String> lvHours = new ListView<>(hourLines);
+        lvHours.setStyle(UIStyle.listViewStyle);
+
+        VBox vbox = new VBox(5, laTitle, laStates, lvProducts, lvHours);
+        vbox.setAlignment(Pos.TOP_CENTER);
+        vbox.setStyle(UIStyle.rootStyleGray);
+
+        Scene scene = new Scene(vbox, WIDTH, HEIGHT);
+        Stage window = new Stage();
+        window.setScene(scene);
+        window.setTitle("📈Sales Dashboard");
+        WinPosManager.registerWindow(window, WIDTH, HEIGHT); //calculate position x and y for this window
+        window.show();
+
+        refresh();
+        Timeline refresher = new Timeline(new KeyFrame(Duration.millis(refreshMillis), event -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        refresher.play();
+        window.setOnHidden(event -> refresher.stop());
+    }
+
+    // Redraws the figures from a fresh snapshot of the SalesAggregator.
+    private void refresh() {
+        SalesAggregator.Snapshot snapshot =
+                OrderHub.getOrderHub().getSalesAggregator().snapshot(System.currentTimeMillis());
+        long[] states = snapshot.slidingByState();
+        laStates.setText(String.format("Last %d min: %d ordered, %d progressing, %d collected",
+                snapshot.slidingMinutes(), states[OrderState.Ordered.ordinal()],
+                states[OrderState.Progressing.ordinal()], states[OrderState.Collected.ordinal()]));
+
+        productLines.clear();
+        productLines.add(String.format("%-6s %-14s %14s %14s", "ID", "Product",
+                "last " + snapshot.slidingMinutes() + " min", "this hour"));
+        for (SalesAggregator.ProductFigures product : snapshot.products()) {
+            productLines.add(String.format("%-6s %-14.14s %4d £%8.2f %4d £%8.2f", product.productId(),
+                    product.description(), product.unitsSliding(), product.revenuePenceSliding() / 100.0,
+                    product.unitsThisHour(), product.revenuePenceThisHour() / 100.0));
+        }
+
+        hourLines.clear();
+        hourLines.add(String.format("%-11s %7s %7s %10s %9s", "Hour", "orders", "units", "revenue", "collected"));
+        for (SalesAggregator.HourFigures hour : snapshot.hours().reversed()) { // latest first
+            String start = LocalDateTime.ofInstant(Instant.ofEpochMilli(hour.hourStartMillis()), ZoneId.systemDefault())
+                    .format(HOUR_FORMAT);
+            hourLines.add(String.format("%-11s %7d %7d £%9.2f %9d", start, hour.orders(), hour.units(),
+                    hour.revenuePence() / 100.0, hour.ordersByState()[OrderState.Collected.ordinal()]));
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package ci553.happyshop.client.picker;
 
+import ci553.happyshop.orderManagement.OrderEvent;
+import ci553.happyshop.orderManagement.OrderEventListener;
 import ci553.happyshop.orderManagement.OrderHub;
 import ci553.happyshop.orderManagement.OrderState;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * PickerModel represents the logic order picker.
@@ -15,15 +16,18 @@ import java.util.TreeSet;
  * 2. Notifying PickerView to Updates user interface.
  *
  * 1. Observing OrderHub.
- * PickerModel is an observer of  OrderHub, receiving orderMap from OrderHub.
+ * PickerModel is an observer of  OrderHub, receiving order changes (OrderEvents) from OrderHub
+ * and keeping its own orderMap of the orders still to be picked (Ordered and Progressing).
+ * Each change only updates the affected line of the picker's order list;
+ * if changes were missed, the whole orderMap is fetched again (OrderHub.resync).
  * When a picker claims a task, PickerModel:
- * - Retrieves the first unlocked order from the orderMap.
- * - Locks the selected order to prevent other pickers from accessing it.
+ * - Claims the oldest waiting order through OrderHub (OrderClaimService), which gives every order
+ *   to exactly one picker, even when several pickers claim at the same moment.
  * - Notifies OrderHub to update the orderMap, and begin preparation of the order.
  *
  * Once the order is collected by the customer, PickerModel:
- * - Unlocks the order.
  * - Notifies OrderHub to update the orderMap.
+ * - Releases its claim on the order.
  * - Begins the next task if available.
  *
  * All changes in order state are centralized through OrderHub to ensure synchronization.
@@ -39,69 +43,47 @@ import java.util.TreeSet;
  * in response to centralized changes made by the OrderHub.
  */
 
-public class PickerModel {
+public class PickerModel implements OrderEventListener {
     public PickerView pickerView;
     private OrderHub orderHub = OrderHub.getOrderHub();
 
-    //two elements that need to be passed to PickerView for updating.
-    private String displayTaOrderMap="";
+    //the order detail that needs to be passed to PickerView for updating (the order list is updated line by line).
     private String displayTaOrderDetail ="";
 
     // TreeMap (orderID,state) holding order IDs and their corresponding states.
-    private static TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
-    private static TreeSet<Integer> lockedOrderIds = new TreeSet<>(); // Track locked orders by orderId
+    private final TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
+    private long lastSequence = 0; // number of the last OrderEvent applied
 
     private int theOrderId=0; //Order ID assigned to a picker;
                               // 0 means no order is currently assigned.
     private OrderState theOrderState;
 
     /**
-     * Attempts to find an unlocked order for this picker and mark it as progressing.
-     * The order will be locked to prevent other pickers from accessing it.
-     * Only the first unlocked order found will be processed.
+     * Claims the oldest waiting order for this picker and marks it as progressing.
+     * The claim is atomic, so no other picker can be given the same order.
+     * Does nothing if this picker already has an order or no order is waiting.
      */
     public void doProgressing() throws IOException {
-        for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            int orderId = entry.getKey();
-            if (!isOrderLocked(orderId)) { // Find the first unlocked order
-                lockOrder(orderId);// Lock the order to prevent other pickers from taking it
-                theOrderId = orderId; // Save the assigned orderId to this picker and update its state
-                theOrderState = OrderState.Progressing;
-                notifyOrderHub();// Notify the OrderHub about the state change
-                updatePickerView(); // Refresh picker view
-                return; // Exit after handling one order
-            }
+        if (theOrderId != 0) {
+            return; // finish the current order first
         }
-    }
-
-    // Lock an order
-    private boolean lockOrder(int orderId) {
-        if (lockedOrderIds.contains(orderId)) {
-            return false; // Order is already locked
-        } else {
-            lockedOrderIds.add(orderId);
-            return true; // Successfully locked the order
+        Integer orderId = orderHub.claimNextOrder(this);
+        if (orderId != null) {
+            theOrderId = orderId; // Save the assigned orderId to this picker and update its state
+            theOrderState = OrderState.Progressing;
+            notifyOrderHub();// Notify the OrderHub about the state change
+            updatePickerView(); // Refresh picker view
         }
     }
 
-    // Unlock an order
-    private void unlockOrder(int orderId) {
-        lockedOrderIds.remove(orderId);
-    }
-
-    // Check if an order is locked
-    private boolean isOrderLocked(int orderId) {
-        return lockedOrderIds.contains(orderId);
-    }
-
     public void doCollected() throws IOException {
-        if(theOrderId!=0 && isOrderLocked(theOrderId)){
+        if(theOrderId!=0){
             theOrderState = OrderState.Collected;
             notifyOrderHub(); // Notify the OrderHub about the state change
             displayTaOrderDetail = "";
             updatePickerView(); // update picker view
+            orderHub.releaseOrder(theOrderId, this); //release the claim while theOrderId still holds the order
             theOrderId=0;  //reset to no order is with the picker
-            unlockOrder(theOrderId);//remove the order from locked orderId set
         }
     }
 
@@ -123,29 +105,61 @@ public class PickerModel {
         }
     }
 
+    // Applies one order change to the orderMap and the displayed order list.
+    // This method is called by OrderHub for every change; collected orders leave the picker's list.
+    @Override
+    public void orderChanged(OrderEvent event) {
+        if (event.sequence() <= lastSequence) return; // already part of a snapshot
+        if (event.sequence() != lastSequence + 1) {
+            orderHub.resync(this); // events were missed
+            return;
+        }
+        lastSequence = event.sequence();
+        int orderId = event.orderId();
+        if (event.type() == OrderEvent.Type.REMOVED || event.state() == OrderState.Collected) {
+            for (int removedId : event.orderIds()) {
+                if (orderMap.remove(removedId) != null && pickerView != null) {
+                    pickerView.removeOrderLine(removedId);
+                }
+            }
+        } else {
+            orderMap.put(orderId, event.state());
+            if (pickerView != null) {
+                pickerView.putOrderLine(orderId, formatLine(orderId, event.state()));
+            }
+        }
+    }
+
     // Sets the order map with new data and refreshes the display.
-    // This method is called by OrderHub to set orderMap for picker.
-    public void setOrderMap(TreeMap<Integer,OrderState> om) {
+    // This method is called by OrderHub to set orderMap for picker at start-up and on resync.
+    @Override
+    public void setOrderMap(TreeMap<Integer,OrderState> om, long sequence) {
+        if (sequence < lastSequence) return; // older than what is shown
         orderMap.clear();
         orderMap.putAll(om);
-        displayTaOrderMap= buildOrderMapString();
-        updatePickerView();
+        lastSequence = sequence;
+        if (pickerView != null) {
+            TreeMap<Integer, String> lines = new TreeMap<>();
+            for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
+                lines.put(entry.getKey(), formatLine(entry.getKey(), entry.getValue()));
+            }
+            pickerView.setOrderLines(lines);
+        }
     }
 
-    //Builds a formatted string representing the current order map.
-    //Each line contains the order ID followed by its state, aligned with spacing.
-    private String buildOrderMapString() {
-        StringBuilder sb = new StringBuilder();
-        for(Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            int orderId = entry.getKey();
-            OrderState orderState = entry.getValue();
-            sb.append(orderId).append(" ".repeat(8)).append(orderState).append("\n");
-        }
-        return sb.toString();
+    // pickers only show orders that are still to be picked
+    @Override
+    public boolean includesCollectedOrders() {
+        return false;
+    }
+
+    //One line of the order list: the order ID followed by its state, aligned with spacing.
+    private static String formatLine(int orderId, OrderState orderState) {
+        return orderId + " ".repeat(8) + orderState;
     }
 
     private void updatePickerView()
     {
-        pickerView.update(displayTaOrderMap,displayTaOrderDetail);
+        pickerView.update(displayTaOrderDetail);
     }
 }
@@ -2,6 +2,8 @@ package ci553.happyshop.client.picker;
 
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,6 +12,9 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TreeMap;
 
 /**
  * The Order Picker window is for staff to prepare customer's order.
@@ -34,8 +39,10 @@ public class PickerView  {
     private VBox vbOrderDetailRoot;
 
     //Three controllers needs updating when program going on
-    private TextArea taOrderMap = new TextArea();
-          // TextArea for displaying a list of orders and their states(orderId → state)
+    private final ObservableList<String> orderLines = FXCollections.observableArrayList();
+    private final ArrayList<Integer> orderIds = new ArrayList<>(); // orderId of each line, sorted
+    private ListView<String> lvOrderMap = new ListView<>(orderLines);
+          // ListView for displaying a list of orders and their states(orderId → state), one line per order
     private TextArea taOrderDetail = new TextArea();
         // TextArea for displaying detailed information about the selected order after it is assigned to the picker.
     private Label laDetailRootTitle;
@@ -64,15 +71,14 @@ public class PickerView  {
         Label laOrderMapRootTitle = new Label("Orders Waiting for Processing");
         laOrderMapRootTitle.setStyle(UIStyle.labelTitleStyle);
 
-        taOrderMap.setEditable(false);
-        taOrderMap.setPrefSize(WIDTH, HEIGHT - 100);
-        taOrderMap.setStyle(UIStyle.textFiledStyle);
+        lvOrderMap.setPrefSize(WIDTH, HEIGHT - 100);
+        lvOrderMap.setStyle(UIStyle.textFiledStyle);
 
         Button btnProgressing = new Button("Progressing");
         btnProgressing.setOnAction(this::buttonClicked);
         btnProgressing.setStyle(UIStyle.buttonStyle);
 
-        VBox vbOrdersListRoot = new VBox(15, laOrderMapRootTitle, taOrderMap, btnProgressing);
+        VBox vbOrdersListRoot = new VBox(15, laOrderMapRootTitle, lvOrderMap, btnProgressing);
         vbOrdersListRoot.setAlignment(Pos.TOP_CENTER);
         vbOrdersListRoot.setStyle(UIStyle.rootStyleYellow);
 
@@ -120,9 +126,35 @@ public class PickerView  {
         }
     }
 
-    void update(String strOrderMap, String strOrderDetail) {
-        taOrderMap.setText(strOrderMap);
+    void update(String strOrderDetail) {
         taOrderDetail.setText(strOrderDetail);
         laDetailRootTitle.setText("Progressing Order Details");
     }
+
+    // Adds the line of an order, or replaces it if the order is already listed.
+    void putOrderLine(int orderId, String line) {
+        int index = Collections.binarySearch(orderIds, orderId);
+        if (index >= 0) {
+            orderLines.set(index, line);
+        } else {
+            index = -index - 1; // insertion point, keeps the list sorted by orderId
+            orderIds.add(index, orderId);
+            orderLines.add(index, line);
+        }
+    }
+
+    void removeOrderLine(int orderId) {
+        int index = Collections.binarySearch(orderIds, orderId);
+        if (index >= 0) {
+            orderIds.remove(index);
+            orderLines.remove(index);
+        }
+    }
+
+    // Replaces all lines, eg. after a resync.
+    void setOrderLines(TreeMap<Integer, String> lines) {
+        orderIds.clear();
+        orderIds.addAll(lines.keySet());
+        orderLines.setAll(lines.values());
+    }
 }
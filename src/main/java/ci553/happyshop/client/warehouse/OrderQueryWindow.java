@@ -0,0 +1,159 @@
+package ci553.happyshop.client.warehouse;
+
+import ci553.happyshop.orderManagement.OrderHub;
+import ci553.happyshop.orderManagement.OrderQueryIndex;
+import ci553.happyshop.utility.UIStyle;
+import ci553.happyshop.utility.WindowBounds;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * This class provides a window to browse past orders, eg. all orders containing product 0007 last week.
+ *
+ * - The warehouse staff enters a product ID (optional) and a date range, the results are listed oldest first.
+ * - Selecting a result shows the order's details.
+ * - The queries are answered by OrderHub's OrderQueryIndex, from memory.
+ * - Like HistoryWindow, the scene is created only once and the window only when needed,
+ *   next to the warehouse window that opened it.
+ */
+
+public class OrderQueryWindow {
+    private static int WIDTH = UIStyle.OrderQueryWinWidth;
+    private static int HEIGHT = UIStyle.OrderQueryWinHeight;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int MAX_LINES = 1000; // results listed; the summary tells how many were found
+
+    public WarehouseView warehouseView;
+    private Stage window;
+    private Scene scene;
+    private TextField tfProductId;
+    private DatePicker dpFrom;
+    private DatePicker dpTo;
+    private Label laSummary;
+    private ObservableList<String> obeResults;
+    private ListView<String> obrLvResults;
+    private TextArea taOrderDetail;
+
+    // Create the scene only once (to avoid recreating it multiple times)
+    private void createScene() {
+        tfProductId = new TextField();
+        tfProductId.setPromptText("Product ID (optional)");
+        tfProductId.setStyle(UIStyle.textFiledStyle);
+        tfProductId.setPrefWidth(130);
+        tfProductId.setOnAction(actionEvent -> search());
+
+        dpFrom = new DatePicker(LocalDate.now().minusDays(7));
+        dpTo = new DatePicker(LocalDate.now());
+        dpFrom.setPrefWidth(120);
+        dpTo.setPrefWidth(120);
+        Button btnSearch = new Button("🔍");
+        btnSearch.setStyle(UIStyle.buttonStyle);
+        btnSearch.setOnAction(actionEvent -> search());
+        HBox hbQuery = new HBox(5, tfProductId, dpFrom, dpTo, btnSearch);
+        hbQuery.setAlignment(Pos.CENTER_LEFT);
+
+        laSummary = new Label("Orders placed between the two dates");
+        laSummary.setStyle(UIStyle.labelStyle);
+
+        obeResults = FXCollections.observableArrayList();
+        obrLvResults = new ListView<>(obeResults);
+        obrLvResults.setStyle(UIStyle.listViewStyle);
+        obrLvResults.getSelectionModel().selectedItemProperty()
+                .addListener((observable, oldLine, newLine) -> showOrderDetail(newLine));
+
+        taOrderDetail = new TextArea();
+        taOrderDetail.setEditable(false);
+        taOrderDetail.setPrefWidth(230);
+        HBox hbResults = new HBox(5, obrLvResults, taOrderDetail);
+
+        VBox vbRoot = new VBox(8, hbQuery, laSummary, hbResults);
+        vbRoot.setStyle(UIStyle.rootStyleWarehouse);
+        scene = new Scene(vbRoot, WIDTH, HEIGHT);
+    }
+
+    // Create the window only when needed (i.e., when the window is not created or closed by user but we need it again)
+    private void createWindow() {
+        if (scene == null) {
+            createScene(); // create the scene only once
+        }
+        window = new Stage();
+        window.setScene(scene);
+        window.setTitle("🏬 Order Query"); // for icon 🏬
+        window.show();
+        //put the window below the warehouse window which triggers it
+        WindowBounds bounds = warehouseView.getWindowBounds();
+        window.setX(bounds.x);
+        window.setY(bounds.y + bounds.height);
+    }
+
+    // Shows the window, with the product ID filled in if one was selected in the warehouse window.
+    public void showOrderQuery(String productId) {
+        if (window == null || !window.isShowing()) {
+            createWindow();  // Only create window if it's not created or unvisible
+        }
+        if (productId != null) {
+            tfProductId.setText(productId);
+        }
+        search();
+    }
+
+    private void search() {
+        LocalDate from = dpFrom.getValue() != null ? dpFrom.getValue() : LocalDate.now();
+        LocalDate to = dpTo.getValue() != null ? dpTo.getValue() : LocalDate.now();
+        long fromMillis = from.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(); // to is inclusive
+        String productId = tfProductId.getText().trim();
+
+        OrderQueryIndex queryIndex = OrderHub.getOrderHub().getQueryIndex();
+        int[] orderIds = productId.isEmpty()
+                ? queryIndex.ordersBetween(fromMillis, toMillis)
+                : queryIndex.ordersWithProduct(productId, fromMillis, toMillis);
+
+        obeResults.clear();
+        for (int i = 0; i < orderIds.length && i < MAX_LINES; i++) {
+            obeResults.add(formatLine(queryIndex, orderIds[i]));
+        }
+        String what = productId.isEmpty() ? "" : " with " + productId;
+        laSummary.setText(orderIds.length + " orders" + what + " from " + from + " to " + to
+                + (orderIds.length > MAX_LINES ? ", first " + MAX_LINES + " shown" : ""));
+        taOrderDetail.clear();
+    }
+
+    //One result line: order ID, time placed and current state
+    private static String formatLine(OrderQueryIndex queryIndex, int orderId) {
+        LocalDateTime placed = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(queryIndex.orderedMillisOf(orderId)), ZoneId.systemDefault());
+        return orderId + "   " + placed.format(TIME_FORMAT) + "   " + queryIndex.stateOf(orderId);
+    }
+
+    private void showOrderDetail(String line) {
+        if (line == null) {
+            taOrderDetail.clear();
+            return;
+        }
+        int orderId = Integer.parseInt(line.substring(0, line.indexOf(' ')));
+        try {
+            taOrderDetail.setText(OrderHub.getOrderHub().getOrderDetail(orderId));
+        } catch (IOException e) {
+            taOrderDetail.setText("Order " + orderId + " cannot be read: " + e.getMessage());
+        }
+    }
+}
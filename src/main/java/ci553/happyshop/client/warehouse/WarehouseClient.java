@@ -40,11 +40,14 @@ public class WarehouseClient extends Application {
 
         HistoryWindow historyWindow = new HistoryWindow();
         AlertSimulator alertSimulator = new AlertSimulator();
+        OrderQueryWindow orderQueryWindow = new OrderQueryWindow();
 
         // Link after start warehouse interface
         model.historyWindow = historyWindow;
         model.alertSimulator = alertSimulator;
+        model.orderQueryWindow = orderQueryWindow;
         historyWindow.warehouseView = view;
         alertSimulator.warehouseView = view;
+        orderQueryWindow.warehouseView = view;
     }
 }
@@ -29,6 +29,12 @@ public class WarehouseController {
             case "Cancel":  // clear the editChild
                 model.doCancel();
                 break;
+            case "Orders": // browse past orders of the selected product
+                model.doOrderQuery();
+                break;
+            case "Load More": // the last product of the search results was scrolled into sight
+                model.doLoadMore();
+                break;
         }
     }
 }
@@ -4,6 +4,7 @@ import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.storageAccess.DerbyRW;
 import ci553.happyshop.storageAccess.ImageFileManager;
+import ci553.happyshop.utility.AppLogger;
 import ci553.happyshop.utility.StorageLocation;
 
 import java.io.IOException;
@@ -15,11 +16,17 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 public class WarehouseModel {
+    private static final AppLogger log = AppLogger.getLogger(WarehouseModel.class);
+
     public WarehouseView view;
     public DatabaseRW databaseRW; //Interface type, not specific implementation
                          //Benefits: Flexibility: Easily change the database implementation.
 
     private ArrayList<Product> productList = new ArrayList<>(); // search results fetched from the database
+    public static int searchPageSize = 20; // description search results are loaded one page at a time
+    private String pagedKeyword = null;    // the description search being paged, null when there is nothing to page
+    private int pagedOffset = 0;           // how many results are loaded
+    private boolean morePages = false;     // false once a short page was loaded
     private Product theSelectedPro; // the product selected from the ListView before the user edits or deletes
     private String theNewProId;
 
@@ -32,6 +39,7 @@ public class WarehouseModel {
 
     public HistoryWindow historyWindow;
     public AlertSimulator alertSimulator;
+    public OrderQueryWindow orderQueryWindow;
     private String displayInputErrorMsg =""; //error message showing in the alertSimulator
     private ArrayList<String> displayManageHistory = new ArrayList<>();// Manage Product history
                                                                //shows in the HistoryWindow
@@ -63,17 +71,45 @@ public class WarehouseModel {
     void doSearch() throws SQLException {
         String keyword = view.tfSearchKeyword.getText().trim();
         if (!keyword.equals("")) {
-            productList = databaseRW.searchProduct(keyword);
+            // search by product ID at first, if not found, search the descriptions for all the typed words
+            // (first page only, the next pages are loaded by doLoadMore() as the list is scrolled)
+            Product foundById = databaseRW.searchByProductId(keyword);
+            if (foundById != null) {
+                productList = new ArrayList<>();
+                productList.add(foundById);
+                pagedKeyword = null;
+                morePages = false;
+            } else {
+                productList = databaseRW.searchByDescriptionRanked(keyword, 0, null, searchPageSize); // best match first
+                pagedKeyword = keyword;
+                pagedOffset = productList.size();
+                morePages = productList.size() >= searchPageSize;
+            }
         }
         else{
             productList.clear();
-            System.out.println("please type product ID or name to search");
+            pagedKeyword = null;
+            morePages = false;
+            log.info("please type product ID or name to search");
         }
         updateView(UpdateForAction.BtnSearch);
     }
 
+    // loads the next page of the current description search, in relevance order after the results already loaded
+    void doLoadMore() throws SQLException {
+        if (pagedKeyword == null || !morePages || productList.isEmpty()) {
+            return;
+        }
+        String cursor = productList.getLast().getProductId();
+        ArrayList<Product> page = databaseRW.searchByDescriptionRanked(pagedKeyword, pagedOffset, cursor, searchPageSize);
+        morePages = page.size() >= searchPageSize;
+        pagedOffset += page.size();
+        productList.addAll(page);
+        view.appendObservableProductList(page, morePages);
+    }
+
     void doDelete() throws SQLException, IOException {
-        System.out.println("delete gets called in model");
+        log.debug("delete gets called in model");
         Product pro  = view.obrLvProducts.getSelectionModel().getSelectedItem();
         if (pro != null ) {
             theSelectedPro = pro;
@@ -90,12 +126,18 @@ public class WarehouseModel {
             theSelectedPro = null;
         }
         else{
-            System.out.println("No product was selected");
+            log.info("No product was selected");
         }
     }
 
+    //opens the order query window for the selected product, or for all products if none is selected
+    void doOrderQuery() {
+        Product pro = view.obrLvProducts.getSelectionModel().getSelectedItem();
+        orderQueryWindow.showOrderQuery(pro == null ? null : pro.getProductId());
+    }
+
     void doEdit() {
-        System.out.println("Edit gets called in model");
+        log.debug("Edit gets called in model");
         Product pro = view.obrLvProducts.getSelectionModel().getSelectedItem();
         if (pro != null) {
             theSelectedPro = pro;
@@ -108,11 +150,11 @@ public class WarehouseModel {
             Path imageFullPath = Paths.get(relativeImageUri).toAbsolutePath();
             displayImageUrlEdit = imageFullPath.toUri().toString();//build the full path Uri
 
-            System.out.println("get new pro image name: " + displayImageUrlEdit);
+            log.debug("get new pro image name: %s", displayImageUrlEdit);
             updateView(UpdateForAction.BtnEdit);
         }
         else{
-            System.out.println("No product was selected");
+            log.info("No product was selected");
         }
 
     }
@@ -137,10 +179,10 @@ public class WarehouseModel {
     }
 
     private void doSubmitEdit() throws IOException, SQLException {
-        System.out.println("ok edit is called");
+        log.debug("ok edit is called");
         if(theSelectedPro!=null) {
             String id=theSelectedPro.getProductId();
-            System.out.println("theSelectedPro " + id); //debug purpose
+            log.debug("theSelectedPro %s", id); //debug purpose
             String imageName = theSelectedPro.getProductImageName();
 
             String textPrice =view.tfPriceEdit.getText().trim();
@@ -169,7 +211,7 @@ public class WarehouseModel {
             }
         }
         else{
-            System.out.println("No Product Selected");
+            log.info("No Product Selected");
         }
     }
 
@@ -213,7 +255,7 @@ public class WarehouseModel {
     }
 
     private void doSubmitNew() throws SQLException, IOException {
-        System.out.println("Adding new Pro in model");
+        log.debug("Adding new Pro in model");
 
         //all info(input from user) about the new product
         theNewProId = view.tfIdNewPro.getText().trim();
@@ -349,6 +391,7 @@ public class WarehouseModel {
     private void updateView(UpdateForAction updateFor){
         switch (updateFor) {
             case UpdateForAction.BtnSearch:
+                view.moreResults = morePages;
                 view.updateObservableProductList(productList);
                 break;
             case UpdateForAction.BtnEdit:
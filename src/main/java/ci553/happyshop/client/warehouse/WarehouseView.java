@@ -5,6 +5,7 @@ import ci553.happyshop.utility.StorageLocation;
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
 import ci553.happyshop.utility.WindowBounds;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -79,6 +80,8 @@ public class WarehouseView  {
     private Label laSearchSummary; //eg. the lable shows "3 products found" after search
     private ObservableList<Product> obeProductList; //observable product list
     ListView<Product> obrLvProducts; //A ListView observes the product list
+    boolean moreResults = false;         // set by WarehouseModel: more pages of the search can be loaded
+    private boolean loadingMore = false; // a "Load More" request is pending
 
     //ProductFormPage:has two children at a time,
     ComboBox<String> cbProductFormMode; //the first child
@@ -187,7 +190,11 @@ public class WarehouseView  {
         btnDelete.setStyle(UIStyle.grayFillBtnStyle);
         btnDelete.setOnAction(this::buttonClick);
 
-        HBox hbLaBtns = new HBox(10, laSearchSummary, btnEdit,btnDelete);
+        Button btnOrders = new Button("Orders"); // past orders of the selected product
+        btnOrders.setStyle(UIStyle.grayFillBtnStyle);
+        btnOrders.setOnAction(this::buttonClick);
+
+        HBox hbLaBtns = new HBox(10, laSearchSummary, btnEdit,btnDelete,btnOrders);
         hbLaBtns.setAlignment(Pos.CENTER);
         hbLaBtns.setPadding(new Insets(5)); //setPadding only works on Layout manager
         //hbLaBtns.setStyle("-fx-padding: 5px;"); //setStyle works on any Node (eg. layout manager, controls)
@@ -235,6 +242,12 @@ public class WarehouseView  {
                     Label laProToString = new Label(product.toString()); // Create a label for product details
                     HBox hbox = new HBox(10, ivPro, laProToString); // Put ImageView and label in a horizontal layout
                     setGraphic(hbox);  // Set the whole row content
+
+                    // lazy loading: the last loaded product is in sight, fetch the next page
+                    if (moreResults && !loadingMore && getIndex() == obeProductList.size() - 1) {
+                        loadingMore = true;
+                        Platform.runLater(WarehouseView.this::requestMoreResults); // not while the list is laid out
+                    }
                 }
             }
         });
@@ -518,12 +531,30 @@ public class WarehouseView  {
     void updateObservableProductList( ArrayList<Product> productList) {
         int proCounter = productList.size();
         System.out.println(proCounter);
-        laSearchSummary.setText(proCounter + " products found");
+        loadingMore = false;
+        laSearchSummary.setText(proCounter + (moreResults ? "+ products found" : " products found"));
         laSearchSummary.setVisible(true);
         obeProductList.clear();
         obeProductList.addAll(productList);
     }
 
+    //append the next page of search results to the product listView
+    void appendObservableProductList(ArrayList<Product> page, boolean more) {
+        moreResults = more;
+        loadingMore = false;
+        obeProductList.addAll(page);
+        laSearchSummary.setText(obeProductList.size() + (moreResults ? "+ products found" : " products found"));
+    }
+
+    private void requestMoreResults() {
+        try {
+            controller.process("Load More");
+        } catch (SQLException | IOException e) {
+            loadingMore = false;
+            throw new RuntimeException(e);
+        }
+    }
+
     void updateBtnAddSub(String stock){
         tfStockEdit.setText(stock);
         tfChangeByEdit.clear();
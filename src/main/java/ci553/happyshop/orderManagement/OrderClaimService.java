@@ -0,0 +1,69 @@
+package ci553.happyshop.orderManagement;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * OrderClaimService hands out waiting orders to pickers, each order to exactly one picker.
+ *
+ * <p>How it works:
+ * - Orders waiting to be picked are kept in a lock-free queue (ConcurrentLinkedQueue), oldest first.
+ * - A picker claims the next order by taking it from the queue and recording itself as the owner
+ *   with an atomic putIfAbsent on the ownership map. Both steps are compare-and-set operations,
+ *   so any number of pickers can claim at the same time without locks, in O(1),
+ *   and no order is ever given to two pickers.
+ * - When the order is collected, the owner releases it; only the owner can.</p>
+ *
+ * <p>An order is queued at most once: offering an order that is already queued or owned does nothing.</p>
+ */
+
+public class OrderClaimService {
+    private final ConcurrentLinkedQueue<Integer> waiting = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();           // orderIds in waiting
+    private final ConcurrentHashMap<Integer, Object> owners = new ConcurrentHashMap<>(); // orderId → picker
+
+    /**
+     * Makes an order available to pickers.
+     * @return false if the order is already waiting or claimed
+     */
+    public boolean offer(int orderId) {
+        if (owners.containsKey(orderId) || !queued.add(orderId)) {
+            return false;
+        }
+        waiting.add(orderId);
+        return true;
+    }
+
+    /**
+     * Claims the oldest waiting order for the picker.
+     * @return the claimed orderId, or null if no order is waiting
+     */
+    public Integer claimNext(Object picker) {
+        Integer orderId;
+        while ((orderId = waiting.poll()) != null) {
+            queued.remove(orderId);
+            if (owners.putIfAbsent(orderId, picker) == null) {
+                return orderId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases an order claimed by the picker, eg. once it was collected.
+     * @return false if the order is not owned by this picker
+     */
+    public boolean release(int orderId, Object picker) {
+        return owners.remove(orderId, picker);
+    }
+
+    // The picker holding the order, or null if it is not claimed.
+    public Object ownerOf(int orderId) {
+        return owners.get(orderId);
+    }
+
+    public int waitingCount() {
+        return queued.size();
+    }
+}
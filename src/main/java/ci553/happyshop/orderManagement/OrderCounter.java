@@ -1,5 +1,6 @@
 package ci553.happyshop.orderManagement;
 
+import ci553.happyshop.utility.AppLogger;
 import ci553.happyshop.utility.StorageLocation;
 
 import java.io.IOException;
@@ -8,18 +9,29 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * OrderCounter is responsible for generating unique, sequential orderIDs for new orders.
  *
  * <p>This class manages a persistent counter stored in an external text file:(ie,"orders/orderCounter.txt").
- * On first use, it creates the file and starts the counter at 1.
- * For subsequent calls, it reads the current number, increments it by 1, writes the updated value
- * back to the file, and returns the new order ID.</p>
+ * The file holds the highest orderID reserved so far (it starts at 0).</p>
+ *
+ * <p>Block allocation (hi/lo):
+ * Instead of opening and rewriting the file for every order, the counter reserves a whole block of
+ * IDs at once: it locks the file, reads the current number N, writes N + blockSize, forces it to disk
+ * and releases the lock. The IDs N+1 .. N+blockSize are then handed out from memory with an AtomicInteger,
+ * without touching the file. Only when the block is used up is the next block reserved.</p>
  *
  * <p>File access is synchronized using a file lock to ensure safe operation in a multi-threaded
- * or multi-process environment. The method is simple to use by OrderHub
- * or any component that needs to generate order numbers.</p>
+ * or multi-process environment: two processes sharing the same orders folder always reserve
+ * different blocks, so orderIDs stay unique. Within one process IDs are increasing; across processes
+ * they may interleave (eg. process A hands out 1..50 while process B hands out 51..100).</p>
+ *
+ * <p>Gaps: the file already says the whole block is used, so IDs of a block that were not handed out
+ * before the program stopped (or crashed) are skipped for good. After a restart numbering continues
+ * after the reserved block, eg. 1, 2, 3, (crash), 51, 52, ... An ID is never given out twice.
+ * Use blockSize = 1 for the old gap-free behaviour, at the cost of one locked file update per order.</p>
  *
  * <p>FileChannel allows exclusive locking of files or specific regions of files,
  * which prevents other threads or processes from accessing the file simultaneously,
@@ -31,11 +43,71 @@ import java.nio.channels.FileLock;
  */
 
 public class OrderCounter {
+    private static final AppLogger log = AppLogger.getLogger(OrderCounter.class);
+
+    // number of orderIDs reserved with each file update, used by the shared counter when it is first created
+    public static int blockSize = 50;
+
+    // FileLock only excludes other processes; counters in this JVM must also take turns,
+    // or a second lock on the same file throws OverlappingFileLockException
+    private static final Object fileLockInJvm = new Object();
+
+    private static OrderCounter instance;
+
+    private final Path path;
+    private final int size;
+    private volatile Block block = new Block(1, 0); // empty: the first call reserves a block
 
+    /**
+     * Creates a counter over the given counter file (which must exist and hold a number).
+     * @param blockSize number of orderIDs reserved at a time
+     */
+    public OrderCounter(Path path, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1: " + blockSize);
+        }
+        this.path = path;
+        this.size = blockSize;
+    }
+
+    // Returns a new orderID from the shared counter over StorageLocation.orderCounterPath.
     public static int generateOrderId() throws IOException {
-        Path path = StorageLocation.orderCounterPath;
+        return getSharedCounter().nextId();
+    }
 
-        // Lock and increment the ID
+    private static synchronized OrderCounter getSharedCounter() {
+        if (instance == null) {
+            instance = new OrderCounter(StorageLocation.orderCounterPath, blockSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the next orderID, reserving a new block from the counter file when the current one is used up.
+     */
+    public int nextId() throws IOException {
+        while (true) {
+            Block current = block;
+            int id = current.next.getAndIncrement();
+            if (id <= current.last) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == current) { // no other thread has reserved a new block meanwhile
+                    block = reserveBlock();
+                }
+            }
+        }
+    }
+
+    // Lock the file, move the high-water mark on by one block and return the reserved IDs.
+    private Block reserveBlock() throws IOException {
+        synchronized (fileLockInJvm) {
+            return reserveBlockLocked();
+        }
+    }
+
+    private Block reserveBlockLocked() throws IOException {
         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
              FileLock lock = channel.lock()) {
 
@@ -52,16 +124,29 @@ public class OrderCounter {
 
             //Gets the raw byte array from the buffer so you can convert it to a string or number.
             String content = new String(buffer.array()).trim();
-            int currentId = Integer.parseInt(content);
-            int newId = currentId + 1;
+            int reservedUpTo = Integer.parseInt(content);
+            int newReservedUpTo = Math.addExact(reservedUpTo, size);
 
             channel.position(0); // Move to the start of the file
             channel.truncate(0); // Clear all content in the file (file size becomes 0)
             //This wraps an existing byte array into a buffer — so you can write it with channel.write().
-            channel.write(ByteBuffer.wrap(String.valueOf(newId).getBytes()));
+            channel.write(ByteBuffer.wrap(String.valueOf(newReservedUpTo).getBytes()));
+            // the block must be on disk before any of its IDs is used, or a crash could hand them out again
+            channel.force(false);
+
+            log.debug("OrderIds %d to %d reserved", reservedUpTo + 1, newReservedUpTo);
+            return new Block(reservedUpTo + 1, newReservedUpTo);
+        }
+    }
+
+    // A reserved range of orderIDs: next is the next one to hand out, last the final one in the range.
+    private static final class Block {
+        final AtomicInteger next;
+        final int last;
 
-            System.out.println("OrderId was generated for now: " + newId);
-            return newId;
+        Block(int first, int last) {
+            this.next = new AtomicInteger(first);
+            this.last = last;
         }
     }
 }
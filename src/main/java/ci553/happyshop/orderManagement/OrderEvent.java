@@ -0,0 +1,40 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.catalogue.Order;
+
+import java.util.List;
+
+/**
+ * An OrderEvent describes one change to the OrderHub's orderMap, sent to every OrderEventListener.
+ *
+ * - ADDED: a new order, state is Ordered. The event also carries the Order itself (order),
+ *   so listeners such as SalesAggregator can use its products without reading the order file;
+ *   order is null in every other event.
+ * - STATE_CHANGED: the order moved to the given state (Progressing or Collected).
+ * - REMOVED: orders left the orderMap (collected orders, after they were shown for a while);
+ *   one REMOVED event can cover several orders, listed in orderIds (orderId is the first of them),
+ *   and state is the last state they had.
+ *
+ * Events are numbered by OrderHub with a sequence number that grows by one per event,
+ * so a listener can tell when it has missed an event and must resync.
+ */
+
+public record OrderEvent(long sequence, Type type, int orderId, OrderState state, List<Integer> orderIds, Order order) {
+
+    public enum Type { ADDED, STATE_CHANGED, REMOVED }
+
+    // An event about a single order.
+    public OrderEvent(long sequence, Type type, int orderId, OrderState state) {
+        this(sequence, type, orderId, state, List.of(orderId), null);
+    }
+
+    // The ADDED event of a new order.
+    public static OrderEvent added(long sequence, Order order) {
+        return new OrderEvent(sequence, Type.ADDED, order.getOrderId(), order.getState(), List.of(order.getOrderId()), order);
+    }
+
+    // One REMOVED event for several collected orders.
+    public static OrderEvent removed(long sequence, List<Integer> orderIds) {
+        return new OrderEvent(sequence, Type.REMOVED, orderIds.get(0), OrderState.Collected, List.copyOf(orderIds), null);
+    }
+}
@@ -0,0 +1,249 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.utility.AppLogger;
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * OrderEventBus delivers OrderHub's OrderEvents to the observers asynchronously,
+ * so the thread that changes an order (eg. the customer's checkout) does not wait for the observers.
+ *
+ * <p>How it works:
+ * - Every subscriber has its own bounded queue. Publishing only puts the event in each queue.
+ * - A subscriber's queue is drained by a delivery task, in batches, on the subscriber's thread:
+ *   the JavaFX application thread for UI observers (OrderTracker, PickerModel), otherwise a background thread.
+ *   A subscriber sees its events one at a time and in order, never from two threads at once.
+ * - When a queue is full, the subscriber's BackPressure policy decides what happens:
+ *   DROP_OLDEST drops the oldest queued event; the subscriber notices the gap in sequence numbers and resyncs.
+ *   COALESCE replaces the whole backlog by one resync, delivered as a single snapshot of the latest orders.
+ *   BLOCK makes the publisher wait for space (at most blockTimeoutMillis, then the oldest event is dropped).
+ *   The wait is not in publish(), which OrderHub calls under its lock to keep events in sequence order,
+ *   but in awaitCapacity(), called after that lock is released: the subscriber may need the same lock
+ *   to drain its queue (OrderHub.resync), so waiting while holding it could deadlock.
+ *   A publisher on the JavaFX thread never blocks on a UI subscriber, which it would itself have to serve.</p>
+ *
+ * <p>Without a running JavaFX toolkit (eg. in tests), UI subscribers are served by the background thread.</p>
+ */
+
+public class OrderEventBus {
+    private static final AppLogger log = AppLogger.getLogger(OrderEventBus.class);
+
+    public enum BackPressure { DROP_OLDEST, COALESCE, BLOCK }
+
+    public static int queueCapacity = 1024;        // events queued per subscriber
+    public static BackPressure backPressure = BackPressure.COALESCE;
+    public static long blockTimeoutMillis = 1000;  // longest wait of a publisher with the BLOCK policy
+    public static int deliveryBatchSize = 256;     // events delivered per task, so the FX thread stays responsive
+
+    private static final ExecutorService background = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "order-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<OrderEventListener> resync; // sends a listener a snapshot, ie. OrderHub.resync
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public OrderEventBus(Consumer<OrderEventListener> resync) {
+        this.resync = resync;
+    }
+
+    // Subscribes a listener with the default queue capacity and back-pressure policy.
+    public void subscribe(OrderEventListener listener, boolean onFxThread) {
+        subscribe(listener, onFxThread, queueCapacity, backPressure);
+    }
+
+    /**
+     * Subscribes a listener.
+     * @param onFxThread true for UI observers: events are delivered on the JavaFX application thread
+     */
+    public void subscribe(OrderEventListener listener, boolean onFxThread, int capacity, BackPressure policy) {
+        subscriptions.add(new Subscription(listener, onFxThread, capacity, policy));
+    }
+
+    // Queues the event for every subscriber and returns without waiting; BLOCK queues may run over their capacity.
+    public void publish(OrderEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Waits until the queue of every BLOCK subscriber is back within its capacity (at most blockTimeoutMillis
+     * per subscriber, then its oldest events are dropped). Publishers call it after publish(), once they hold
+     * no lock a subscriber's delivery may need, eg. the lock on OrderHub that resync() takes.
+     */
+    public void awaitCapacity() {
+        for (Subscription subscription : subscriptions) {
+            subscription.awaitCapacity();
+        }
+    }
+
+    // Queues a resync for every subscriber, eg. after the orders were loaded at start-up.
+    public void publishResync() {
+        for (Subscription subscription : subscriptions) {
+            subscription.requestResync();
+        }
+    }
+
+    // One subscriber: its queue, policy and delivery thread.
+    private final class Subscription {
+        private final OrderEventListener listener;
+        private final boolean onFxThread;
+        private final int capacity;
+        private final BackPressure policy;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final ArrayDeque<OrderEvent> queue = new ArrayDeque<>();
+        private boolean resyncPending = false;  // deliver a snapshot before the queued events
+        private boolean scheduled = false;      // a delivery task is queued or running
+        private long dropped = 0;
+
+        Subscription(OrderEventListener listener, boolean onFxThread, int capacity, BackPressure policy) {
+            this.listener = listener;
+            this.onFxThread = onFxThread;
+            this.capacity = Math.max(1, capacity);
+            this.policy = policy;
+        }
+
+        void offer(OrderEvent event) {
+            lock.lock();
+            try {
+                if (queue.size() >= capacity && policy != BackPressure.BLOCK) {
+                    makeRoom(); // BLOCK waits in awaitCapacity(), outside the publisher's locks
+                }
+                queue.addLast(event);
+                scheduleLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void requestResync() {
+            lock.lock();
+            try {
+                resyncPending = true;
+                scheduleLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called with the lock held and the queue full (COALESCE and DROP_OLDEST).
+        private void makeRoom() {
+            switch (policy) {
+                case COALESCE:
+                    dropped += queue.size();
+                    queue.clear();
+                    resyncPending = true; // the snapshot covers every change dropped here
+                    return;
+                case DROP_OLDEST:
+                default:
+                    dropOldest();
+            }
+        }
+
+        // BLOCK only: waits until the queue is within its capacity again, then drops what is still over it.
+        void awaitCapacity() {
+            if (policy != BackPressure.BLOCK) return;
+            lock.lock();
+            try {
+                if (!(onFxThread && Platform.isFxApplicationThread())) {
+                    long nanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+                    try {
+                        while (queue.size() > capacity && nanos > 0) {
+                            nanos = notFull.awaitNanos(nanos);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                while (queue.size() > capacity) {
+                    dropOldest(); // the subscriber is too slow
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called with the lock held; the subscriber notices the gap in sequence numbers and resyncs.
+        private void dropOldest() {
+            queue.pollFirst();
+            dropped++;
+        }
+
+        private void scheduleLocked() {
+            if (!scheduled) {
+                scheduled = true;
+                executor().execute(this::deliver);
+            }
+        }
+
+        private Executor executor() {
+            if (!onFxThread) return background;
+            return task -> {
+                try {
+                    Platform.runLater(task);
+                } catch (IllegalStateException toolkitNotRunning) {
+                    background.execute(task);
+                }
+            };
+        }
+
+        // Delivers one batch, then schedules itself again if more events are waiting.
+        private void deliver() {
+            boolean snapshot;
+            List<OrderEvent> batch = new ArrayList<>();
+            long lost;
+            lock.lock();
+            try {
+                snapshot = resyncPending;
+                resyncPending = false;
+                while (batch.size() < deliveryBatchSize && !queue.isEmpty()) {
+                    batch.add(queue.pollFirst());
+                }
+                lost = dropped;
+                dropped = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            if (lost > 0) {
+                log.warn("%s fell behind, %d order events skipped", listener.getClass().getSimpleName(), lost);
+            }
+            try {
+                if (snapshot) {
+                    resync.accept(listener);
+                }
+                for (OrderEvent event : batch) {
+                    listener.orderChanged(event);
+                }
+            } catch (RuntimeException e) {
+                log.error(e, "Order event delivery to %s failed", listener.getClass().getSimpleName());
+            } finally {
+                lock.lock();
+                try {
+                    scheduled = false;
+                    if (resyncPending || !queue.isEmpty()) {
+                        scheduleLocked();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ci553.happyshop.orderManagement;
+
+import java.util.TreeMap;
+
+/**
+ * OrderEventListener is implemented by the observers of OrderHub (OrderTracker and PickerModel).
+ *
+ * <p>Instead of receiving the whole orderMap after every change, a listener receives one OrderEvent
+ * per change and applies just that change to its own copy and display.</p>
+ *
+ * <p>Resync:
+ * A listener keeps the sequence number of the last event it applied. If an event arrives whose number
+ * is not the next one (the listener registered late, or missed events), it calls
+ * {@code OrderHub.resync(this)}, which replaces its copy with a snapshot through {@link #setOrderMap}.
+ * Events numbered at or below the snapshot's sequence are already included in it and are ignored.</p>
+ */
+
+public interface OrderEventListener {
+
+    // Applies one change.
+    void orderChanged(OrderEvent event);
+
+    /**
+     * Replaces the listener's copy of the orders with a snapshot.
+     * @param orderMap orderId → state
+     * @param sequence the number of the last event included in the snapshot
+     */
+    void setOrderMap(TreeMap<Integer, OrderState> orderMap, long sequence);
+
+    // false for listeners that only show orders still to be picked (Ordered and Progressing)
+    default boolean includesCollectedOrders() {
+        return true;
+    }
+}
@@ -4,23 +4,25 @@ import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.client.orderTracker.OrderTracker;
 import ci553.happyshop.client.picker.PickerModel;
-import ci553.happyshop.storageAccess.OrderFileManager;
+import ci553.happyshop.storageAccess.OrderIndexSnapshot;
+import ci553.happyshop.storageAccess.OrderStore;
+import ci553.happyshop.storageAccess.OrderStoreFactory;
+import ci553.happyshop.utility.AppLogger;
 import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.TimerWheel;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 
 /**
  * <p>{@code OrderHub} serves as the heart of the ordering system.
@@ -30,214 +32,471 @@ import java.util.stream.Stream;
  * <p> It is the central coordinator responsible for managing all orders. It handles:
  *   Creating and tracking orders
  *   Maintaining and updating the internal order map, <OrderId, OrderState>
- *   Delegating file-related operations (e.g., updating state and moving files) to OrderFileManager class
- *   Loading orders in the "ordered" and "progressing" states from storage during system startup
+ *   Delegating storage (e.g., writing new orders, recording state changes) to an OrderStore,
+ *   either one text file per order (DirectoryOrderStore) or an append-only journal (JournalOrderStore)
+ *   Loading orders in the "ordered" and "progressing" states from storage during system startup,
+ *   starting from a periodically written snapshot of its index (OrderIndexSnapshot) when there is one
  *
  * <p> OrderHub also follows the Observer pattern: it notifies registered observers such as OrderTracker
- * and PickerModel whenever the order data changes, keeping the UI and business logic in sync.</p>
+ * and PickerModel whenever the order data changes, keeping the UI and business logic in sync.
+ * Observers are sent one numbered OrderEvent per change (added, state changed, removed) rather than
+ * the whole orderMap; an observer that misses an event asks for a snapshot with resync().
+ * Events are delivered asynchronously by an OrderEventBus (on the JavaFX thread for these UI observers),
+ * so creating or changing an order does not wait for the observers.</p>
  *
  * <p>As the heart of the ordering system, OrderHub connects customers, pickers, and tracker,
  * managementing logic into a unified workflow.</p>
  */
 
 public class OrderHub  {
+    private static final AppLogger log = AppLogger.getLogger(OrderHub.class);
     private static OrderHub orderHub; //singleton instance
 
-    private final Path orderedPath = StorageLocation.orderedPath;
-    private final Path progressingPath = StorageLocation.progressingPath;
-    private final Path collectedPath = StorageLocation.collectedPath;
+    private OrderStore orderStore; // where orders are persisted, see StorageLocation.orderStorageLayout
 
     private TreeMap<Integer,OrderState> orderMap = new TreeMap<>();
-    private TreeMap<Integer,OrderState> OrderedOrderMap = new TreeMap<>();
-    private TreeMap<Integer,OrderState> progressingOrderMap = new TreeMap<>();
+    // the orderIds in each state, kept in step with orderMap so no notification has to filter the whole map
+    private final EnumMap<OrderState, NavigableSet<Integer>> ordersByState = new EnumMap<>(OrderState.class);
+    private long sequence = 0; // number of the last OrderEvent sent
+    private final HashMap<Integer, Long> lastChangeMillis = new HashMap<>(); // orderId → time of its last change
+
+    public static long snapshotIntervalMillis = 60_000; // how often the index snapshot is written, if orders changed
+    private long snapshotSequence = -1;                 // sequence included in the last snapshot written
+    // start times of the store writes in progress (time → count); a snapshot is dated no later than the oldest
+    private final TreeMap<Long, Integer> storeWritesInProgress = new TreeMap<>();
 
     /**
-     * Two Lists to hold all registered OrderTracker and PickerModel observers.
-     * These observers are notified whenever the orderMap is updated,
-     * but each observer is only notified of the parts of the orderMap that are relevant to them.
-     * - OrderTrackers will be notified of the full orderMap, including all orders (ordered, progressing, collected),
-     *   but collected orders are shown for a limited time (10 seconds).
-     * - PickerModels will be notified only of orders in the "ordered" or "progressing" states, filtering out collected orders.
+     * The event bus holds all registered OrderTracker and PickerModel observers, each with its own queue.
+     * These observers are notified of every change to the orderMap,
+     * but each observer only keeps the parts of the orderMap that are relevant to them.
+     * - OrderTrackers keep the full orderMap, including all orders (ordered, progressing, collected),
+     *   but collected orders are shown for a limited time (collectedRetentionMillis, 10 seconds).
+     * - PickerModels keep only orders in the "ordered" or "progressing" states, dropping collected orders.
      */
-    private ArrayList<OrderTracker> orderTrackerList = new ArrayList<>();
-    private ArrayList<PickerModel> pickerModelList = new ArrayList<>();
+    private final OrderEventBus eventBus = new OrderEventBus(this::resync);
+
+    // hands each waiting order to exactly one picker
+    private final OrderClaimService claimService = new OrderClaimService();
+
+    // date and product indexes of the orders, for the warehouse's order queries
+    private final OrderQueryIndex queryIndex = new OrderQueryIndex();
+    public static long queryIndexSaveIntervalMillis = 10 * 60_000; // how often the query index is saved, if it changed
+    // orderIds generated but not yet in the query index; a saved index is only complete below the lowest of them
+    private final TreeSet<Integer> ordersBeingPlaced = new TreeSet<>();
+    private volatile boolean queryIndexBackfilled = false; // the stored orders are all in the query index
+    private long savedQueryIndexVersion = -1;              // only used by the scheduler thread
+
+    // live sales figures, fed by the order events; it must not miss any, hence a large queue and BLOCK
+    private final SalesAggregator salesAggregator = new SalesAggregator();
+
+    // how long orders wait in each state, summarized every OrderLatencyRecorder.intervalMillis
+    private final OrderLatencyRecorder latencyRecorder = new OrderLatencyRecorder(StorageLocation.latencyCsvPath);
+
+    public static long collectedRetentionMillis = 10_000; // how long collected orders stay in the orderMap
+    public static long expiryTickMillis = 1_000;          // how often expired collected orders are removed
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    // collected orders waiting to be removed, by removal time; created with the first collected order
+    private TimerWheel<Integer> collectedExpiry;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, runnable -> {
+        Thread thread = new Thread(runnable, "order-hub");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     //Singleton pattern
-    private OrderHub() {}
+    private OrderHub() {
+        for (OrderState state : OrderState.values()) {
+            ordersByState.put(state, new TreeSet<>());
+        }
+        eventBus.subscribe(salesAggregator, false, 65_536, OrderEventBus.BackPressure.BLOCK);
+        scheduler.scheduleAtFixedRate(latencyRecorder::rollInterval, OrderLatencyRecorder.intervalMillis,
+                OrderLatencyRecorder.intervalMillis, TimeUnit.MILLISECONDS);
+    }
     public static OrderHub getOrderHub() {
         if (orderHub == null)
             orderHub = new OrderHub();
             return orderHub;
     }
 
+    private OrderStore orderStore() throws IOException {
+        if (orderStore == null) {
+            orderStore = OrderStoreFactory.getOrderStore();
+        }
+        return orderStore;
+    }
+
     //Creates a new order using the provided list of products.
     //and also notify picker and orderTracker
     public Order newOrder(ArrayList<Product> trolley) throws IOException, SQLException {
-        int orderId = OrderCounter.generateOrderId(); //get unique orderId
-        String orderedDateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        //make an Order Object: id, Ordered_state, orderedDateTime, and productsList(trolley)
-        Order theOrder = new Order(orderId,OrderState.Ordered,orderedDateTime,trolley);
-
-        //write order details to file for the orderId in orderedPath (ie. orders/ordered)
-        String orderDetail = theOrder.orderDetails();
-        Path path = orderedPath;
-        OrderFileManager.createOrderFile(path, orderId, orderDetail);
-
-        orderMap.put(orderId, theOrder.getState()); //add the order to orderMap,state is Ordered initially
-        notifyOrderTrackers(); //notify OrderTrackers
-        notifyPickerModels();//notify pickers
-        
+        int orderId;
+        synchronized (ordersBeingPlaced) {
+            orderId = OrderCounter.generateOrderId(); //get unique orderId
+            ordersBeingPlaced.add(orderId);
+        }
+        long orderedMillis = System.currentTimeMillis();
+        //make an Order Object: id, Ordered_state, orderedMillis, and productsList(trolley)
+        Order theOrder = new Order(orderId,OrderState.Ordered,orderedMillis,trolley);
+
+        try {
+            //persist the order, eg. as orders/ordered/<orderId>.txt or as a record in the order journal
+            long writeStarted = beginStoreWrite();
+            try {
+                orderStore().createOrder(theOrder);
+
+                //add the order to orderMap,state is Ordered initially, and notify OrderTrackers and pickers
+                synchronized (this) {
+                    putOrderState(orderId, theOrder.getState());
+                    eventBus.publish(OrderEvent.added(++sequence, theOrder));
+                }
+            } finally {
+                endStoreWrite(writeStarted);
+            }
+            eventBus.awaitCapacity(); //back-pressure from slow subscribers, outside the lock they may need to drain
+            queryIndex.addOrder(orderId, orderedMillis, theOrder.getState(),
+                    trolley.stream().map(Product::getProductId).toList());
+        } finally {
+            synchronized (ordersBeingPlaced) {
+                ordersBeingPlaced.remove(orderId);
+            }
+        }
+        claimService.offer(orderId); //pickers can claim it now
+
         return theOrder;
     }
 
+    /**
+     * Claims the oldest order waiting to be picked for the picker; safe to call from any number of pickers at once.
+     * The picker then moves it to Progressing with changeOrderStateMoveFile.
+     * @return the claimed orderId, or null if no order is waiting
+     */
+    public Integer claimNextOrder(Object picker) {
+        return claimService.claimNext(picker);
+    }
+
+    // Gives up the picker's claim on an order, once it has been collected.
+    public boolean releaseOrder(int orderId, Object picker) {
+        return claimService.release(orderId, picker);
+    }
+
     //Registers an OrderTracker to receive updates about changes.
     public void registerOrderTracker(OrderTracker orderTracker){
-        orderTrackerList.add(orderTracker);
-    }
-     //Notifies all registered observer_OrderTrackers to update and display the latest orderMap.
-    public void notifyOrderTrackers(){
-        for(OrderTracker orderTracker : orderTrackerList){
-            orderTracker.setOrderMap(orderMap);
-        }
+        eventBus.subscribe(orderTracker, true);
     }
 
     //Registers a PickerModel to receive updates about changes.
     public void registerPickerModel(PickerModel pickerModel){
-        pickerModelList.add(pickerModel);
+        eventBus.subscribe(pickerModel, true);
+    }
+
+    //Queues one numbered change for all OrderTrackers and pickers. Called with the lock on OrderHub held,
+    //right after the change was made, so observers receive the events in sequence order.
+    //It never waits: the caller calls eventBus.awaitCapacity() once the lock is released.
+    private void publish(OrderEvent.Type type, int orderId, OrderState state) {
+        eventBus.publish(new OrderEvent(++sequence, type, orderId, state));
     }
 
-    //notify all pickers to show orderMap (only ordered and progressing states orders)
-    public void notifyPickerModels(){
+    /**
+     * Sends an observer a snapshot of the orders together with the number of the last event it includes.
+     * Called by observers that registered late or noticed a gap in the event sequence numbers.
+     */
+    public synchronized void resync(OrderEventListener listener) {
+        listener.setOrderMap(listener.includesCollectedOrders() ? new TreeMap<>(orderMap) : ordersForPickers(), sequence);
+    }
+
+    //the orders in the "ordered" and "progressing" states, built from the per-state index
+    //so collected orders are never visited
+    private TreeMap<Integer,OrderState> ordersForPickers() {
         TreeMap<Integer,OrderState> orderMapForPicker = new TreeMap<>();
-        progressingOrderMap = filterOrdersByState(OrderState.Progressing);
-        OrderedOrderMap = filterOrdersByState(OrderState.Ordered);
-        orderMapForPicker.putAll(progressingOrderMap);
-        orderMapForPicker.putAll(OrderedOrderMap);
-        for(PickerModel pickerModel : pickerModelList){
-            pickerModel.setOrderMap(orderMapForPicker);
-        }
-    }
-
-    // Filters orderMap that match the specified state, a helper class used by notifyPickerModel()
-    private TreeMap<Integer, OrderState> filterOrdersByState(OrderState state) {
-        TreeMap<Integer, OrderState> filteredOrderMap = new TreeMap<>(); // New map to hold filtered orders
-        // Loop through the orderMap and add matching orders to filteredOrders
-        for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            if (entry.getValue() == state) {
-                filteredOrderMap.put(entry.getKey(), entry.getValue());
-            }
+        for (Integer orderId : ordersByState.get(OrderState.Progressing)) {
+            orderMapForPicker.put(orderId, OrderState.Progressing);
+        }
+        for (Integer orderId : ordersByState.get(OrderState.Ordered)) {
+            orderMapForPicker.put(orderId, OrderState.Ordered);
         }
-        return filteredOrderMap;
+        return orderMapForPicker;
     }
 
-    //Changes the state of the specified order, updates its file, and moves it to the appropriate folder.
+    // Sets the state of an order in orderMap and moves its orderId to the matching set of ordersByState.
+    private void putOrderState(int orderId, OrderState newState) {
+        putOrderState(orderId, newState, System.currentTimeMillis());
+    }
+
+    private void putOrderState(int orderId, OrderState newState, long changeMillis) {
+        OrderState oldState = orderMap.put(orderId, newState);
+        if (oldState != null) {
+            ordersByState.get(oldState).remove(orderId);
+        }
+        ordersByState.get(newState).add(orderId);
+        lastChangeMillis.put(orderId, changeMillis);
+    }
+
+    // Removes an order from orderMap and from its set in ordersByState.
+    private void removeOrderState(int orderId) {
+        OrderState oldState = orderMap.remove(orderId);
+        if (oldState != null) {
+            ordersByState.get(oldState).remove(orderId);
+        }
+        lastChangeMillis.remove(orderId);
+    }
+
+    //Changes the state of the specified order and records the change in the OrderStore
+    //(the directory layout updates the order file and moves it to the appropriate folder).
     //trigger by PickerModel
     public void changeOrderStateMoveFile(int orderId, OrderState newState) throws IOException {
-        if(orderMap.containsKey(orderId) && !orderMap.get(orderId).equals(newState))
-        {
-            //change orderState in OrderMap, notify OrderTrackers and pickers
-            orderMap.put(orderId, newState);
-            notifyOrderTrackers();
-            notifyPickerModels();
-
-            //change orderState in order file and move the file to new state folder
-            switch(newState){
-                case OrderState.Progressing:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState,orderedPath,progressingPath);
-                    break;
-                case OrderState.Collected:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState,progressingPath,collectedPath);
-                    removeCollectedOrder(orderId); //Scheduled removal
-                    break;
+        long writeStarted;
+        OrderState oldState;
+        long enteredOldState;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            oldState = orderMap.get(orderId);
+            if (oldState == null || oldState.equals(newState)) {
+                return;
             }
+            enteredOldState = lastChangeMillis.getOrDefault(orderId, now);
+            //change orderState in OrderMap, notify OrderTrackers and pickers
+            putOrderState(orderId, newState, now);
+            publish(OrderEvent.Type.STATE_CHANGED, orderId, newState);
+            queryIndex.stateChanged(orderId, newState);
+            writeStarted = beginStoreWrite();
+        }
+
+        recordLatency(orderId, oldState, newState, now - enteredOldState, now);
+
+        //record the new state in the OrderStore
+        try {
+            orderStore().changeState(orderId, newState);
+        } finally {
+            endStoreWrite(writeStarted);
+        }
+        eventBus.awaitCapacity();
+        if (newState == OrderState.Collected) {
+            removeCollectedOrder(orderId); //Scheduled removal
         }
     }
 
     /**
-     * Removes collected orders from the system after they have been collected for 10 seconds.
+     * Removes collected orders from the system after they have been collected for collectedRetentionMillis (10 seconds).
      *
      * This ensures that collected orders are cleared from the active order pool and are no longer displayed
      * by the OrderTracker after the brief period. This keeps the system focused on orders in the
      * "ordered" and "progressing" states.
      * The 10-second delay gives enough time for any final updates, and providing a short window for review of completed orders.
+     *
+     * Instead of one scheduled task per order, the order is put in a timer wheel. One periodic task
+     * (every expiryTickMillis) takes all orders whose time is up and removes them together,
+     * with a single REMOVED event for the whole batch.
      */
-    private void removeCollectedOrder(int orderId) {
+    private synchronized void removeCollectedOrder(int orderId) {
         if (orderMap.containsKey(orderId)) {
-            // Schedule removal after a few seconds
-            scheduler.schedule(() -> {
-                orderMap.remove(orderId); //remove collected order
-                System.out.println("Order " + orderId + " removed from tracker and OrdersMap.");
-                notifyOrderTrackers();
-            }, 10, TimeUnit.SECONDS );
+            long now = System.currentTimeMillis();
+            if (collectedExpiry == null) {
+                collectedExpiry = new TimerWheel<>(expiryTickMillis, 64, 3, now);
+                scheduler.scheduleAtFixedRate(this::expireCollectedOrders,
+                        expiryTickMillis, expiryTickMillis, TimeUnit.MILLISECONDS);
+            }
+            collectedExpiry.add(orderId, now + collectedRetentionMillis);
+        }
+    }
+
+    // One tick of the expiry wheel: removes every collected order whose retention has ended.
+    private void expireCollectedOrders() {
+        List<Integer> removed = new ArrayList<>();
+        synchronized (this) {
+            for (Integer orderId : collectedExpiry.advanceTo(System.currentTimeMillis())) {
+                if (orderMap.get(orderId) == OrderState.Collected) {
+                    removeOrderState(orderId); //remove collected order
+                    removed.add(orderId);
+                }
+            }
+            if (!removed.isEmpty()) {
+                eventBus.publish(OrderEvent.removed(++sequence, removed));
+            }
+        }
+        if (!removed.isEmpty()) {
+            eventBus.awaitCapacity();
+            log.info("%d collected order(s) removed from tracker and OrdersMap: %s", removed.size(), removed);
         }
     }
 
+    // The date and product indexes of the orders, used by the warehouse's OrderQueryWindow.
+    public OrderQueryIndex getQueryIndex() {
+        return queryIndex;
+    }
+
+    // Records how long the order stayed in its previous state, and for collected orders its whole lifetime.
+    // Orders loaded at start-up without a snapshot count from the start-up time.
+    private void recordLatency(int orderId, OrderState oldState, OrderState newState, long inOldState, long now) {
+        if (oldState == OrderState.Ordered && newState == OrderState.Progressing) {
+            latencyRecorder.record(OrderLatencyRecorder.Transition.ORDERED_TO_PROGRESSING, inOldState);
+        } else if (oldState == OrderState.Progressing && newState == OrderState.Collected) {
+            latencyRecorder.record(OrderLatencyRecorder.Transition.PROGRESSING_TO_COLLECTED, inOldState);
+        }
+        long orderedMillis = queryIndex.orderedMillisOf(orderId);
+        if (newState == OrderState.Collected && orderedMillis >= 0) {
+            latencyRecorder.record(OrderLatencyRecorder.Transition.ORDERED_TO_COLLECTED, now - orderedMillis);
+        }
+    }
+
+    // The order state latencies, shown by the OrderTracker.
+    public OrderLatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
+
+    // The live sales figures, shown by the SalesDashboard.
+    public SalesAggregator getSalesAggregator() {
+        return salesAggregator;
+    }
+
+    // Reads the details of any order, in any state, eg. a result of an order query.
+    public String getOrderDetail(int orderId) throws IOException {
+        return orderStore().readOrder(orderId);
+    }
+
     // Reads details of an order for display in the picker once they started preparing the order.
     public String  getOrderDetailForPicker(int orderId) throws IOException {
-        OrderState state = orderMap.get(orderId);
-        if(state.equals(OrderState.Progressing)) {
-            return OrderFileManager.readOrderFile(progressingPath,orderId);
+        OrderState state;
+        synchronized (this) {
+            state = orderMap.get(orderId);
+        }
+        if(state == OrderState.Progressing) {
+            return orderStore().readOrder(orderId);
         }else{
             return "the fuction is only for picker";
         }
     }
 
-    //Initializes the internal order map by loading the uncollected orders from the file system.
+    //Initializes the internal order map by loading the uncollected orders from the OrderStore
+    //(the state folders, or a replay of the order journal).
+    //With a valid index snapshot the store only reconciles what changed after it; otherwise it scans everything.
+    //Then a fresh snapshot is written and rewritten every snapshotIntervalMillis.
+    //The query index is loaded from its saved copy, and the stored orders placed after that
+    //(all of them, collected and archived ones included, without a saved copy) are added in the background.
     // Called during system startup by the Main class.
     public void initializeOrderMap(){
-        ArrayList<Integer> orderedIds = orderIdsLoader(orderedPath);
-        ArrayList<Integer> progressingIds = orderIdsLoader(progressingPath);
-        if(orderedIds.size()>0){
-            for(Integer orderId : orderedIds){
-                orderMap.put(orderId, OrderState.Ordered);
-            }
+        TreeMap<Integer, OrderState> activeOrders;
+        OrderIndexSnapshot snapshot = OrderIndexSnapshot.read(StorageLocation.orderIndexSnapshotPath,
+                StorageLocation.orderStorageLayout);
+        try {
+            activeOrders = snapshot == null
+                    ? orderStore().loadActiveOrders()
+                    : orderStore().loadActiveOrders(snapshot);
+        } catch (IOException e) {
+            log.error(e, "Orders could not be loaded");
+            activeOrders = new TreeMap<>();
         }
-        if(progressingIds.size()>0){
-            for(Integer orderId : progressingIds){
-                orderMap.put(orderId, OrderState.Progressing);
+        int queryIndexCompleteThrough = queryIndex.load(StorageLocation.orderQueryIndexPath,
+                StorageLocation.orderStorageLayout);
+        queryIndex.reconcileStates(activeOrders);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (var entry : activeOrders.entrySet()) {
+                //keep the change time of the snapshot when the order is still in the same state
+                OrderIndexSnapshot.Entry known = snapshot == null ? null : snapshot.getEntries().get(entry.getKey());
+                long changeMillis = known != null && known.state() == entry.getValue() ? known.lastChangeMillis() : now;
+                putOrderState(entry.getKey(), entry.getValue(), changeMillis);
             }
+            sequence++; // a change no event describes: every observer resyncs
+            eventBus.publishResync();
+        }
+        writeSnapshot();
+        scheduler.scheduleAtFixedRate(this::writeSnapshot,
+                snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        //orders left in Progressing belonged to pickers of the previous run, so they can be claimed again
+        activeOrders.keySet().forEach(claimService::offer);
+        scheduler.execute(() -> backfillQueryIndex(queryIndexCompleteThrough));
+        scheduler.scheduleAtFixedRate(this::saveQueryIndex,
+                queryIndexSaveIntervalMillis, queryIndexSaveIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("orderMap initilized. %d orders in total, including: %d Ordered orders, %d Progressing orders",
+                orderMap.size(), ordersByState.get(OrderState.Ordered).size(),
+                ordersByState.get(OrderState.Progressing).size());
+    }
+
+    // Runs on the scheduler: adds the stored orders after completeThrough to the query index, straight from
+    // the store in orderId order, so nearly every insert is an append. Orders placed meanwhile are added
+    // by newOrder as well; the index ignores the second add. Then the index is saved for the next start-up.
+    private void backfillQueryIndex(int completeThrough) {
+        long started = System.currentTimeMillis();
+        int[] added = {0};
+        try {
+            orderStore().forEachOrder(completeThrough, stored -> {
+                queryIndex.addOrder(stored.orderId(), stored.orderedMillis(), stored.state(), stored.productIds());
+                added[0]++;
+            });
+            queryIndexBackfilled = true;
+        } catch (IOException e) {
+            log.error(e, "Stored orders could not be listed, the order query index only covers new orders");
         }
-        notifyOrderTrackers();
-        notifyPickerModels();
-        System.out.println("orderMap initilized. "+ orderMap.size() + " orders in total, including:");
-        System.out.println( orderedIds.size() + " Ordered orders, " +progressingIds.size() + " Progressing orders " );
-    }
-
-    // Loads a list of order IDs from the specified directory.
-    // Used internally by initializeOrderMap().
-    private ArrayList<Integer> orderIdsLoader(Path dir) {
-        ArrayList<Integer> orderIds = new ArrayList<>();
-
-        if (Files.exists(dir) && Files.isDirectory(dir)) {
-            try (Stream<Path> fileStream = Files.list(dir)) {
-                // Process the stream without checking it separately
-                List<Path> files = fileStream.filter(Files::isRegularFile).toList();
-
-                if (files.isEmpty()) {
-                    System.out.println(dir + " is empty");
-                } else {
-                    for (Path file : files) {
-                        String fileName = file.getFileName().toString();
-                        if (fileName.endsWith(".txt")) { // Ensure it's a .txt file
-                            try {
-                                int orderId = Integer.parseInt(fileName.substring(0, fileName.lastIndexOf('.')));
-                                orderIds.add(orderId);
-                                System.out.println(orderId);
-                            } catch (NumberFormatException e) {
-                                System.out.println("Invalid file name: " + fileName);
-                            }
-                        }
-                    }
+        log.info("Order query index: %d orders after order %d read in %d ms, %d orders in total",
+                added[0], completeThrough, System.currentTimeMillis() - started, queryIndex.size());
+        saveQueryIndex();
+    }
+
+    // Saves the query index if it changed, once the backfill has completed it. The copy is taken while no
+    // orderId can be generated, so every order up to the lowest one still being placed is in it.
+    private void saveQueryIndex() {
+        if (!queryIndexBackfilled) return;
+        OrderQueryIndex copy;
+        int completeThrough;
+        synchronized (ordersBeingPlaced) {
+            if (queryIndex.version() == savedQueryIndexVersion) return;
+            copy = queryIndex.copy();
+            completeThrough = ordersBeingPlaced.isEmpty()
+                    ? copy.lastOrderId()
+                    : Math.min(copy.lastOrderId(), ordersBeingPlaced.first() - 1);
+        }
+        try {
+            copy.save(StorageLocation.orderQueryIndexPath, StorageLocation.orderStorageLayout, completeThrough);
+            savedQueryIndexVersion = copy.version();
+            log.debug("Order query index saved, %d orders", copy.size());
+        } catch (IOException e) {
+            log.error(e, "Order query index could not be saved");
+        }
+    }
+
+    // Notes the start of a write to the OrderStore, returning its start time for endStoreWrite.
+    private synchronized long beginStoreWrite() {
+        long started = System.currentTimeMillis();
+        storeWritesInProgress.merge(started, 1, Integer::sum);
+        return started;
+    }
+
+    private synchronized void endStoreWrite(long started) {
+        storeWritesInProgress.computeIfPresent(started, (time, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Writes a snapshot of the active orders (Ordered and Progressing) if any order changed since the last one.
+     * The index is copied under the lock. The snapshot is dated at the copy, or at the start of the oldest
+     * store write still in progress, so every file change the copy may not include happened after that date
+     * and is reconciled at the next start-up.
+     */
+    private void writeSnapshot() {
+        TreeMap<Integer, OrderIndexSnapshot.Entry> entries = new TreeMap<>();
+        long writtenMillis;
+        long snapshotOf;
+        synchronized (this) {
+            if (sequence == snapshotSequence) {
+                return; // nothing changed
+            }
+            writtenMillis = storeWritesInProgress.isEmpty()
+                    ? System.currentTimeMillis()
+                    : storeWritesInProgress.firstKey();
+            snapshotOf = sequence;
+            for (OrderState state : new OrderState[]{OrderState.Ordered, OrderState.Progressing}) {
+                for (Integer orderId : ordersByState.get(state)) {
+                    entries.put(orderId, new OrderIndexSnapshot.Entry(state, lastChangeMillis.get(orderId)));
                 }
-            } catch (IOException e) {
-                System.out.println("Error reading " + dir + ", " + e.getMessage());
             }
-        } else {
-            System.out.println(dir + " does not exist.");
         }
-        return orderIds;
+        try {
+            OrderIndexSnapshot.write(StorageLocation.orderIndexSnapshotPath, StorageLocation.orderStorageLayout,
+                    writtenMillis, entries);
+            synchronized (this) {
+                snapshotSequence = snapshotOf;
+            }
+            log.debug("Order index snapshot written, %d active orders", entries.size());
+        } catch (IOException e) {
+            log.error(e, "Order index snapshot could not be written");
+        }
     }
-
 }
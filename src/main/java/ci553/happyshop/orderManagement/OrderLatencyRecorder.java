@@ -0,0 +1,160 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.LatencyHistogram;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * OrderLatencyRecorder measures how long orders spend in each state, from the transitions
+ * OrderHub makes in changeOrderStateMoveFile, so it shows when picker capacity is the bottleneck.
+ *
+ * <p>How it works:
+ * - Every transition's latency (milliseconds since the order entered its previous state) is recorded in a
+ *   LatencyHistogram for the current interval, one histogram per Transition. Recording is O(1).
+ * - Every intervalMillis, OrderHub rolls the interval: p50, p95, p99 and max of each transition are computed,
+ *   appended to a CSV file (orders/latency.csv) and kept for display (OrderTracker). The interval's
+ *   histograms are then added to the totals since start-up and cleared.
+ * - When the CSV file grows beyond csvMaxBytes it is renamed to latency.csv.1 (replacing the previous one)
+ *   and a new file is started.</p>
+ */
+
+public class OrderLatencyRecorder {
+    private static final AppLogger log = AppLogger.getLogger(OrderLatencyRecorder.class);
+
+    public static long intervalMillis = 60_000;         // length of one reporting interval
+    public static long csvMaxBytes = 1024 * 1024;       // the CSV file is rolled over at this size
+
+    private static final long HIGHEST_TRACKABLE_MILLIS = 7 * 24 * 3600 * 1000L;
+    private static final int SIGNIFICANT_DIGITS = 2;    // percentiles within 1%
+    private static final String CSV_HEADER = "intervalStart,intervalEnd,transition,count,p50Millis,p95Millis,p99Millis,maxMillis";
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public enum Transition {
+        ORDERED_TO_PROGRESSING("Ordered→Progressing"),  // waiting for a picker
+        PROGRESSING_TO_COLLECTED("Progressing→Collected"), // picking and waiting for the customer
+        ORDERED_TO_COLLECTED("Ordered→Collected");     // the whole order
+
+        private final String label;
+
+        Transition(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    // The percentiles of one transition over an interval (or since start-up), in milliseconds.
+    public record Summary(Transition transition, long intervalStartMillis, long intervalEndMillis,
+                          long count, long p50, long p95, long p99, long max) {}
+
+    private final Path csvFile;
+    private final EnumMap<Transition, LatencyHistogram> interval = new EnumMap<>(Transition.class);
+    private final EnumMap<Transition, LatencyHistogram> total = new EnumMap<>(Transition.class);
+    private long intervalStartMillis;
+    private volatile List<Summary> lastInterval = List.of();
+
+    public OrderLatencyRecorder(Path csvFile) {
+        this.csvFile = csvFile;
+        for (Transition transition : Transition.values()) {
+            interval.put(transition, new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS));
+            total.put(transition, new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS));
+        }
+        intervalStartMillis = System.currentTimeMillis();
+    }
+
+    public synchronized void record(Transition transition, long latencyMillis) {
+        interval.get(transition).record(latencyMillis);
+    }
+
+    // Ends the current interval: summarizes it, appends it to the CSV file and starts the next one.
+    public void rollInterval() {
+        long now = System.currentTimeMillis();
+        List<Summary> summaries = new ArrayList<>();
+        synchronized (this) {
+            for (Transition transition : Transition.values()) {
+                LatencyHistogram histogram = interval.get(transition);
+                if (histogram.getTotalCount() > 0) {
+                    summaries.add(summarize(transition, histogram, intervalStartMillis, now));
+                    total.get(transition).add(histogram);
+                    histogram.reset();
+                }
+            }
+            intervalStartMillis = now;
+        }
+        if (!summaries.isEmpty()) { // an idle interval keeps the last busy one on display
+            lastInterval = List.copyOf(summaries);
+            try {
+                appendToCsv(summaries);
+            } catch (IOException e) {
+                log.error(e, "Order latencies could not be written to %s", csvFile);
+            }
+        }
+    }
+
+    // The summaries of the last interval that had any transitions.
+    public List<Summary> lastIntervalSummaries() {
+        return lastInterval;
+    }
+
+    // The summaries since start-up, including the current interval.
+    public synchronized List<Summary> totalSummaries() {
+        List<Summary> summaries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Transition transition : Transition.values()) {
+            LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS, SIGNIFICANT_DIGITS);
+            histogram.add(total.get(transition));
+            histogram.add(interval.get(transition));
+            if (histogram.getTotalCount() > 0) {
+                summaries.add(summarize(transition, histogram, 0, now));
+            }
+        }
+        return summaries;
+    }
+
+    private static Summary summarize(Transition transition, LatencyHistogram histogram, long start, long end) {
+        return new Summary(transition, start, end, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(95),
+                histogram.getValueAtPercentile(99), histogram.getMaxValue());
+    }
+
+    private void appendToCsv(List<Summary> summaries) throws IOException {
+        if (Files.exists(csvFile) && Files.size(csvFile) > csvMaxBytes) {
+            Files.move(csvFile, csvFile.resolveSibling(csvFile.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        boolean newFile = Files.notExists(csvFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                writer.write(CSV_HEADER);
+                writer.newLine();
+            }
+            for (Summary summary : summaries) {
+                writer.write(String.join(",", formatTime(summary.intervalStartMillis()),
+                        formatTime(summary.intervalEndMillis()), summary.transition().name(),
+                        String.valueOf(summary.count()), String.valueOf(summary.p50()), String.valueOf(summary.p95()),
+                        String.valueOf(summary.p99()), String.valueOf(summary.max())));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String formatTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(CSV_TIME);
+    }
+}
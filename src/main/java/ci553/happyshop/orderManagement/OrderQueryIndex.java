@@ -0,0 +1,363 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.storageAccess.OrderStorageLayout;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * OrderQueryIndex answers questions about past orders from memory, eg. "all orders containing product 0007
+ * last week", without reading any order file. OrderHub keeps it up to date as orders are created and change state.
+ *
+ * <p>Indexes:
+ * - byTime: every order as (orderedMillis, orderId), sorted by time. A date range is two binary searches,
+ *   and the answer is the slice between them.
+ * - byProduct: productId → the orders containing it, also sorted by time, so "product in date range"
+ *   is two binary searches in that product's list only.
+ * - byId: orderId → orderedMillis and state, sorted by orderId, to show a result without opening its file.
+ * All three are parallel primitive arrays that grow by doubling. Orders arrive almost in time and orderId order,
+ * so an insert is nearly always an append; a late arrival is moved into place.</p>
+ *
+ * <p>A query costs O(log n + k) for k results. OrderHub saves the index to orders/orderQuery.index now and then.
+ * At start-up it loads the saved index, corrects the states from the active orders, and then adds only the stored
+ * orders after the last orderId the saved index was complete for (OrderStore.forEachOrder). Each new order is
+ * added as it is placed.</p>
+ *
+ * <p>File layout (big-endian), checksummed and replaced atomically like OrderIndexSnapshot:
+ * <pre>
+ *   int    magic "HSQ1"
+ *   byte   length + storage layout name (UTF-8)
+ *   int    completeThroughId: every stored order up to this orderId is in the file
+ *   int    n, then n × (int orderId, long orderedMillis, byte state)      byId
+ *   n × (long orderedMillis, int orderId)                                  byTime
+ *   int    number of products, then for each: short length + productId (UTF-8),
+ *          int count, count × (long orderedMillis, int orderId)
+ *   long   CRC32 of everything above
+ * </pre></p>
+ */
+
+public class OrderQueryIndex {
+    private static final AppLogger log = AppLogger.getLogger(OrderQueryIndex.class);
+
+    private static final int MAGIC = ('H' << 24) | ('S' << 16) | ('Q' << 8) | '1';
+
+    private final TimeSortedIds byTime = new TimeSortedIds(1024);
+    private final HashMap<String, TimeSortedIds> byProduct = new HashMap<>();
+
+    private int[] ids = new int[1024];          // sorted orderIds
+    private long[] orderedMillis = new long[1024];
+    private byte[] states = new byte[1024];     // OrderState ordinal
+    private int size = 0;
+    private long version = 0;                   // counts the changes, so an unchanged index is not saved again
+
+    /**
+     * Adds a new order. Products that appear more than once in the order are indexed once.
+     * Adding an order that is already indexed does nothing.
+     */
+    public synchronized void addOrder(int orderId, long orderedAtMillis, OrderState state, Collection<String> productIds) {
+        int at = Arrays.binarySearch(ids, 0, size, orderId);
+        if (at >= 0) return;
+        at = -at - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            orderedMillis = Arrays.copyOf(orderedMillis, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        System.arraycopy(orderedMillis, at, orderedMillis, at + 1, size - at);
+        System.arraycopy(states, at, states, at + 1, size - at);
+        ids[at] = orderId;
+        orderedMillis[at] = orderedAtMillis;
+        states[at] = (byte) state.ordinal();
+        size++;
+        version++;
+
+        byTime.add(orderedAtMillis, orderId);
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            byProduct.computeIfAbsent(productId, id -> new TimeSortedIds(8)).add(orderedAtMillis, orderId);
+        }
+    }
+
+    // Records the new state of an indexed order.
+    public synchronized void stateChanged(int orderId, OrderState state) {
+        int at = Arrays.binarySearch(ids, 0, size, orderId);
+        if (at >= 0) {
+            states[at] = (byte) state.ordinal();
+            version++;
+        }
+    }
+
+    /**
+     * Sets the states from the active orders loaded at start-up: an order not among them has been collected.
+     * States only move forward, so this corrects everything a saved index missed.
+     */
+    public synchronized void reconcileStates(Map<Integer, OrderState> activeOrders) {
+        for (int i = 0; i < size; i++) {
+            OrderState state = activeOrders.get(ids[i]);
+            states[i] = (byte) (state != null ? state : OrderState.Collected).ordinal();
+        }
+        version++;
+    }
+
+    // The orders placed in [fromMillis, toMillis), oldest first.
+    public synchronized int[] ordersBetween(long fromMillis, long toMillis) {
+        return byTime.range(fromMillis, toMillis);
+    }
+
+    // The orders containing the product placed in [fromMillis, toMillis), oldest first.
+    public synchronized int[] ordersWithProduct(String productId, long fromMillis, long toMillis) {
+        TimeSortedIds orders = byProduct.get(productId);
+        return orders == null ? new int[0] : orders.range(fromMillis, toMillis);
+    }
+
+    // The state of an indexed order, or null if it is not indexed.
+    public synchronized OrderState stateOf(int orderId) {
+        int at = Arrays.binarySearch(ids, 0, size, orderId);
+        return at < 0 ? null : OrderState.values()[states[at]];
+    }
+
+    // The time an indexed order was placed, or -1 if it is not indexed.
+    public synchronized long orderedMillisOf(int orderId) {
+        int at = Arrays.binarySearch(ids, 0, size, orderId);
+        return at < 0 ? -1 : orderedMillis[at];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    // The highest indexed orderId, or 0 if the index is empty.
+    public synchronized int lastOrderId() {
+        return size == 0 ? 0 : ids[size - 1];
+    }
+
+    // A copy to save while this index keeps changing.
+    public synchronized OrderQueryIndex copy() {
+        OrderQueryIndex copy = new OrderQueryIndex();
+        copy.ids = Arrays.copyOf(ids, Math.max(size, 1));
+        copy.orderedMillis = Arrays.copyOf(orderedMillis, Math.max(size, 1));
+        copy.states = Arrays.copyOf(states, Math.max(size, 1));
+        copy.size = size;
+        copy.version = version;
+        copy.byTime.copyFrom(byTime);
+        byProduct.forEach((productId, orders) -> {
+            TimeSortedIds copied = new TimeSortedIds(1);
+            copied.copyFrom(orders);
+            copy.byProduct.put(productId, copied);
+        });
+        return copy;
+    }
+
+    /**
+     * Writes the index to file, replacing the previous one.
+     * @param completeThroughId every stored order up to this orderId is in the index
+     */
+    public synchronized void save(Path file, OrderStorageLayout layout, int completeThroughId) throws IOException {
+        byte[] layoutName = layout.name().getBytes(StandardCharsets.UTF_8);
+        HashMap<String, byte[]> productIds = new HashMap<>();
+        long length = 4 + 1 + layoutName.length + 4 + 4 + (long) size * (4 + 8 + 1) + (long) size * (8 + 4) + 4 + 8;
+        for (Map.Entry<String, TimeSortedIds> entry : byProduct.entrySet()) {
+            byte[] productId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            productIds.put(entry.getKey(), productId);
+            length += 2 + productId.length + 4 + (long) entry.getValue().count * (8 + 4);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Order query index too large to save: " + length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) layoutName.length).put(layoutName);
+        buffer.putInt(completeThroughId);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(ids[i]).putLong(orderedMillis[i]).put(states[i]);
+        }
+        byTime.writeTo(buffer, size);
+        buffer.putInt(byProduct.size());
+        for (Map.Entry<String, TimeSortedIds> entry : byProduct.entrySet()) {
+            byte[] productId = productIds.get(entry.getKey());
+            buffer.putShort((short) productId.length).put(productId);
+            buffer.putInt(entry.getValue().count);
+            entry.getValue().writeTo(buffer, entry.getValue().count);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the content of the index with the one saved for the given storage layout.
+     * @return the orderId the saved index is complete through, or 0 if there is no usable file (the index is then empty)
+     */
+    public synchronized int load(Path file, OrderStorageLayout layout) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            log.info("No saved order query index at %s", file);
+            return 0;
+        } catch (IOException e) {
+            log.warn("Order query index %s cannot be read: %s", file, e.getMessage());
+            return 0;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < 4 + 8 || buffer.getInt() != MAGIC) {
+                log.warn("%s is not an order query index", file);
+                return 0;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            if (crc.getValue() != buffer.getLong(bytes.length - 8)) {
+                log.warn("Order query index %s is corrupt (checksum mismatch)", file);
+                return 0;
+            }
+            byte[] layoutName = new byte[buffer.get() & 0xFF];
+            buffer.get(layoutName);
+            String writtenFor = new String(layoutName, StandardCharsets.UTF_8);
+            if (!writtenFor.equals(layout.name())) {
+                log.info("Order query index %s was saved for %s orders, not %s", file, writtenFor, layout);
+                return 0;
+            }
+            int completeThroughId = buffer.getInt();
+            int count = buffer.getInt();
+            if (count < 0 || count > (bytes.length - buffer.position()) / (4 + 8 + 1 + 8 + 4)) {
+                log.warn("Order query index %s is corrupt (bad order count %d)", file, count);
+                return 0;
+            }
+            int[] loadedIds = new int[Math.max(count, 1024)];
+            long[] loadedMillis = new long[loadedIds.length];
+            byte[] loadedStates = new byte[loadedIds.length];
+            for (int i = 0; i < count; i++) {
+                loadedIds[i] = buffer.getInt();
+                loadedMillis[i] = buffer.getLong();
+                loadedStates[i] = buffer.get();
+                if (loadedStates[i] < 0 || loadedStates[i] >= OrderState.values().length) {
+                    log.warn("Order query index %s is corrupt (bad state of order %d)", file, loadedIds[i]);
+                    return 0;
+                }
+            }
+            TimeSortedIds loadedByTime = TimeSortedIds.readFrom(buffer, count);
+            HashMap<String, TimeSortedIds> loadedByProduct = new HashMap<>();
+            int products = buffer.getInt();
+            for (int p = 0; p < products; p++) {
+                byte[] productId = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(productId);
+                int orders = buffer.getInt();
+                if (orders < 0 || orders > count) {
+                    log.warn("Order query index %s is corrupt (bad product order count %d)", file, orders);
+                    return 0;
+                }
+                loadedByProduct.put(new String(productId, StandardCharsets.UTF_8), TimeSortedIds.readFrom(buffer, orders));
+            }
+
+            ids = loadedIds;
+            orderedMillis = loadedMillis;
+            states = loadedStates;
+            size = count;
+            byTime.copyFrom(loadedByTime);
+            byProduct.clear();
+            byProduct.putAll(loadedByProduct);
+            version++;
+            return completeThroughId;
+        } catch (BufferUnderflowException e) {
+            log.warn("Order query index %s is truncated", file);
+            return 0;
+        }
+    }
+
+    // A list of (time, orderId) pairs in time order, in two parallel arrays.
+    private static final class TimeSortedIds {
+        private long[] times;
+        private int[] orderIds;
+        private int count = 0;
+
+        TimeSortedIds(int capacity) {
+            times = new long[capacity];
+            orderIds = new int[capacity];
+        }
+
+        void add(long time, int orderId) {
+            if (count == times.length) {
+                times = Arrays.copyOf(times, count * 2);
+                orderIds = Arrays.copyOf(orderIds, count * 2);
+            }
+            int at = count;
+            while (at > 0 && times[at - 1] > time) { // a late arrival: shift the newer entries up
+                at--;
+            }
+            System.arraycopy(times, at, times, at + 1, count - at);
+            System.arraycopy(orderIds, at, orderIds, at + 1, count - at);
+            times[at] = time;
+            orderIds[at] = orderId;
+            count++;
+        }
+
+        void copyFrom(TimeSortedIds other) {
+            times = Arrays.copyOf(other.times, Math.max(other.count, 1));
+            orderIds = Arrays.copyOf(other.orderIds, Math.max(other.count, 1));
+            count = other.count;
+        }
+
+        void writeTo(ByteBuffer buffer, int n) {
+            for (int i = 0; i < n; i++) {
+                buffer.putLong(times[i]).putInt(orderIds[i]);
+            }
+        }
+
+        static TimeSortedIds readFrom(ByteBuffer buffer, int n) {
+            TimeSortedIds list = new TimeSortedIds(Math.max(n, 8));
+            for (int i = 0; i < n; i++) {
+                list.times[i] = buffer.getLong();
+                list.orderIds[i] = buffer.getInt();
+            }
+            list.count = n;
+            return list;
+        }
+
+        int[] range(long from, long to) {
+            if (from >= to) return new int[0];
+            return Arrays.copyOfRange(orderIds, firstAtOrAfter(from), firstAtOrAfter(to));
+        }
+
+        // index of the first entry with time >= t
+        private int firstAtOrAfter(long t) {
+            int low = 0, high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] < t) low = mid + 1; else high = mid;
+            }
+            return low;
+        }
+    }
+}
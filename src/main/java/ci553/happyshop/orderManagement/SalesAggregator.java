@@ -0,0 +1,289 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.utility.AppLogger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * SalesAggregator keeps live sales figures (revenue and units per product, orders and units per hour,
+ * orders reaching each state) up to date from OrderHub's OrderEvents, so no order file is ever re-read.
+ *
+ * <p>Windows:
+ * - Tumbling: one bucket per clock hour, for the last tumblingHours hours, kept in rings of primitive arrays
+ *   (orders, units and revenue per hour, per product per hour, and per state per hour).
+ * - Sliding: the last slidingMinutes minutes, in one-minute buckets, again per product and per state.
+ *   Running totals are kept next to the buckets: an event adds to its bucket and to the totals,
+ *   and when a minute bucket falls out of the window it is subtracted from the totals and cleared.
+ * Products get a dense slot number on first sale, so every per-product figure is an array index.
+ * Revenue is counted in pence (long) to stay exact.</p>
+ *
+ * <p>Events arrive through the OrderEventBus on a background thread; readers (SalesDashboard) take a
+ * consistent copy with snapshot(). A missed event cannot be recovered from a resync,
+ * which only carries states, so SalesAggregator subscribes with a large queue and the BLOCK policy.</p>
+ */
+
+public class SalesAggregator implements OrderEventListener {
+    private static final AppLogger log = AppLogger.getLogger(SalesAggregator.class);
+
+    public static int tumblingHours = 24;  // hours kept in the hourly (tumbling) figures
+    public static int slidingMinutes = 60; // length of the sliding window
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final int STATES = OrderState.values().length;
+
+    private final int hours;
+    private final int minutes;
+
+    // products: productId → slot
+    private final HashMap<String, Integer> productSlots = new HashMap<>();
+    private final ArrayList<String> productIds = new ArrayList<>();
+    private final ArrayList<String> productDescriptions = new ArrayList<>();
+    private int productCapacity = 64;
+
+    // tumbling, per clock hour: ring indexed by hour % hours
+    private final long[] hourStart;        // start of the hour held in each bucket, -1 if empty
+    private final long[] ordersByHour;
+    private final long[] unitsByHour;
+    private final long[] revenueByHour;    // pence
+    private final long[][] stateByHour;    // [bucket][state ordinal]
+    private long[][] productUnitsByHour;   // [bucket][product slot]
+    private long[][] productRevenueByHour;
+
+    // sliding, per minute: ring indexed by minute % minutes, with running totals
+    private final long[] minuteStart;
+    private long[][] productUnitsByMinute;
+    private long[][] productRevenueByMinute;
+    private final long[][] stateByMinute;
+    private long[] slidingProductUnits;
+    private long[] slidingProductRevenue;
+    private final long[] slidingState = new long[STATES];
+    private long currentMinute = -1;       // latest minute seen, the sliding window ends with it
+
+    private long lastSequence = 0;
+
+    public SalesAggregator() {
+        this(tumblingHours, slidingMinutes);
+    }
+
+    public SalesAggregator(int hours, int minutes) {
+        this.hours = hours;
+        this.minutes = minutes;
+        hourStart = new long[hours];
+        Arrays.fill(hourStart, -1);
+        ordersByHour = new long[hours];
+        unitsByHour = new long[hours];
+        revenueByHour = new long[hours];
+        stateByHour = new long[hours][STATES];
+        productUnitsByHour = new long[hours][productCapacity];
+        productRevenueByHour = new long[hours][productCapacity];
+
+        minuteStart = new long[minutes];
+        Arrays.fill(minuteStart, -1);
+        productUnitsByMinute = new long[minutes][productCapacity];
+        productRevenueByMinute = new long[minutes][productCapacity];
+        stateByMinute = new long[minutes][STATES];
+        slidingProductUnits = new long[productCapacity];
+        slidingProductRevenue = new long[productCapacity];
+    }
+
+    @Override
+    public void orderChanged(OrderEvent event) {
+        if (event.sequence() <= lastSequence) return;
+        if (lastSequence != 0 && event.sequence() != lastSequence + 1) {
+            log.warn("Sales figures miss %d order events", event.sequence() - lastSequence - 1);
+        }
+        lastSequence = event.sequence();
+        long now = System.currentTimeMillis();
+        if (event.type() == OrderEvent.Type.ADDED && event.order() != null) {
+            orderPlaced(event.order(), now);
+        } else if (event.type() == OrderEvent.Type.STATE_CHANGED) {
+            stateReached(event.state(), now);
+        }
+    }
+
+    // Only new events count: a snapshot carries no sales, it just sets where the events continue.
+    @Override
+    public void setOrderMap(TreeMap<Integer, OrderState> orderMap, long sequence) {
+        lastSequence = Math.max(lastSequence, sequence);
+    }
+
+    @Override
+    public boolean includesCollectedOrders() {
+        return false; // the snapshot is not used, keep it small
+    }
+
+    // Adds a new order placed at the given time to every window.
+    public synchronized void orderPlaced(Order order, long millis) {
+        int hour = hourBucket(millis);
+        int minute = minuteBucket(millis);
+        if (hour >= 0) {
+            ordersByHour[hour]++;
+            stateByHour[hour][order.getState().ordinal()]++;
+        }
+        if (minute >= 0) {
+            stateByMinute[minute][order.getState().ordinal()]++;
+            slidingState[order.getState().ordinal()]++;
+        }
+        for (Product product : order.getProductList()) {
+            int slot = productSlot(product);
+            long units = product.getOrderedQuantity();
+            long pence = Math.round(product.getUnitPrice() * 100) * units;
+            if (hour >= 0) {
+                unitsByHour[hour] += units;
+                revenueByHour[hour] += pence;
+                productUnitsByHour[hour][slot] += units;
+                productRevenueByHour[hour][slot] += pence;
+            }
+            if (minute >= 0) {
+                productUnitsByMinute[minute][slot] += units;
+                productRevenueByMinute[minute][slot] += pence;
+                slidingProductUnits[slot] += units;
+                slidingProductRevenue[slot] += pence;
+            }
+        }
+    }
+
+    // Counts an order reaching a state (Progressing or Collected) at the given time.
+    public synchronized void stateReached(OrderState state, long millis) {
+        int hour = hourBucket(millis);
+        if (hour >= 0) {
+            stateByHour[hour][state.ordinal()]++;
+        }
+        int minute = minuteBucket(millis);
+        if (minute >= 0) {
+            stateByMinute[minute][state.ordinal()]++;
+            slidingState[state.ordinal()]++;
+        }
+    }
+
+    // Sales of one product: in the sliding window and in the current clock hour.
+    public record ProductFigures(String productId, String description,
+                                 long unitsSliding, long revenuePenceSliding,
+                                 long unitsThisHour, long revenuePenceThisHour) {}
+
+    // One clock hour (tumbling window).
+    public record HourFigures(long hourStartMillis, long orders, long units, long revenuePence, long[] ordersByState) {}
+
+    /**
+     * A copy of the figures as of nowMillis.
+     * @param products    per product, by revenue in the sliding window, highest first
+     * @param hours       the clock hours with activity, oldest first
+     * @param slidingByState number of orders that reached each state (by ordinal) in the sliding window
+     */
+    public record Snapshot(long nowMillis, int slidingMinutes, List<ProductFigures> products,
+                           List<HourFigures> hours, long[] slidingByState) {}
+
+    public synchronized Snapshot snapshot(long nowMillis) {
+        advanceMinutes(Math.floorDiv(nowMillis, MINUTE));
+        long thisHour = Math.floorDiv(nowMillis, HOUR) * HOUR;
+        int hour = (int) Math.floorMod(Math.floorDiv(nowMillis, HOUR), (long) hours);
+        boolean currentHourKept = hourStart[hour] == thisHour;
+
+        List<ProductFigures> products = new ArrayList<>();
+        for (int slot = 0; slot < productIds.size(); slot++) {
+            products.add(new ProductFigures(productIds.get(slot), productDescriptions.get(slot),
+                    slidingProductUnits[slot], slidingProductRevenue[slot],
+                    currentHourKept ? productUnitsByHour[hour][slot] : 0,
+                    currentHourKept ? productRevenueByHour[hour][slot] : 0));
+        }
+        products.sort((a, b) -> Long.compare(b.revenuePenceSliding(), a.revenuePenceSliding()));
+
+        List<HourFigures> hourFigures = new ArrayList<>();
+        for (int bucket = 0; bucket < hours; bucket++) {
+            if (hourStart[bucket] >= 0 && hourStart[bucket] > thisHour - (long) hours * HOUR) {
+                hourFigures.add(new HourFigures(hourStart[bucket], ordersByHour[bucket], unitsByHour[bucket],
+                        revenueByHour[bucket], stateByHour[bucket].clone()));
+            }
+        }
+        hourFigures.sort((a, b) -> Long.compare(a.hourStartMillis(), b.hourStartMillis()));
+        return new Snapshot(nowMillis, minutes, products, hourFigures, slidingState.clone());
+    }
+
+    // The hour bucket for the time, cleared first if it still holds an older hour;
+    // -1 if the bucket already holds a later hour, ie. the time is out of the window.
+    private int hourBucket(long millis) {
+        long start = Math.floorDiv(millis, HOUR) * HOUR;
+        int bucket = (int) Math.floorMod(Math.floorDiv(millis, HOUR), (long) hours);
+        if (hourStart[bucket] != start) {
+            if (hourStart[bucket] > start) {
+                return -1;
+            }
+            hourStart[bucket] = start;
+            ordersByHour[bucket] = 0;
+            unitsByHour[bucket] = 0;
+            revenueByHour[bucket] = 0;
+            Arrays.fill(stateByHour[bucket], 0);
+            Arrays.fill(productUnitsByHour[bucket], 0);
+            Arrays.fill(productRevenueByHour[bucket], 0);
+        }
+        return bucket;
+    }
+
+    // The minute bucket for the time after sliding the window forward, or -1 if the time is out of the window.
+    private int minuteBucket(long millis) {
+        long minute = Math.floorDiv(millis, MINUTE);
+        advanceMinutes(minute);
+        if (minute <= currentMinute - minutes) {
+            return -1;
+        }
+        int bucket = (int) Math.floorMod(minute, (long) minutes);
+        if (minuteStart[bucket] != minute) {
+            minuteStart[bucket] = minute;
+        }
+        return bucket;
+    }
+
+    // Slides the window so it ends with the given minute, taking expired buckets out of the running totals.
+    private void advanceMinutes(long minute) {
+        if (minute <= currentMinute) return;
+        long first = currentMinute < 0 ? minute : Math.max(currentMinute + 1, minute - minutes + 1);
+        for (long m = first; m <= minute; m++) {
+            int bucket = (int) Math.floorMod(m, (long) minutes);
+            if (minuteStart[bucket] >= 0) { // holds a minute that is now out of the window
+                for (int slot = 0; slot < productIds.size(); slot++) {
+                    slidingProductUnits[slot] -= productUnitsByMinute[bucket][slot];
+                    slidingProductRevenue[slot] -= productRevenueByMinute[bucket][slot];
+                }
+                for (int state = 0; state < STATES; state++) {
+                    slidingState[state] -= stateByMinute[bucket][state];
+                }
+                Arrays.fill(productUnitsByMinute[bucket], 0);
+                Arrays.fill(productRevenueByMinute[bucket], 0);
+                Arrays.fill(stateByMinute[bucket], 0);
+                minuteStart[bucket] = -1;
+            }
+        }
+        currentMinute = minute;
+    }
+
+    // The slot of a product, given on its first sale; the arrays grow when the slots run out.
+    private int productSlot(Product product) {
+        Integer slot = productSlots.get(product.getProductId());
+        if (slot != null) return slot;
+        slot = productIds.size();
+        if (slot == productCapacity) {
+            productCapacity *= 2;
+            for (int bucket = 0; bucket < hours; bucket++) {
+                productUnitsByHour[bucket] = Arrays.copyOf(productUnitsByHour[bucket], productCapacity);
+                productRevenueByHour[bucket] = Arrays.copyOf(productRevenueByHour[bucket], productCapacity);
+            }
+            for (int bucket = 0; bucket < minutes; bucket++) {
+                productUnitsByMinute[bucket] = Arrays.copyOf(productUnitsByMinute[bucket], productCapacity);
+                productRevenueByMinute[bucket] = Arrays.copyOf(productRevenueByMinute[bucket], productCapacity);
+            }
+            slidingProductUnits = Arrays.copyOf(slidingProductUnits, productCapacity);
+            slidingProductRevenue = Arrays.copyOf(slidingProductRevenue, productCapacity);
+        }
+        productSlots.put(product.getProductId(), slot);
+        productIds.add(product.getProductId());
+        productDescriptions.add(product.getProductDescription());
+        return slot;
+    }
+}
@@ -0,0 +1,170 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * BinaryOrderStore keeps one small binary file per order (eg. orders/binary/12.ord),
+ * encoded with OrderCodec instead of the text of Order.orderDetails().
+ *
+ * <p>State changes in place:
+ * The state byte and the three timestamps sit at fixed offsets in the record header, so a state change
+ * is one positional FileChannel.write over the bytes from the state to the new timestamp
+ * (17 bytes for Progressing, 25 for Collected). The file is never rewritten, copied or moved.</p>
+ *
+ * <p>Logical state folders:
+ * All files stay in one folder. Which orders are Ordered, Progressing or Collected is kept in an
+ * in-memory index, built at start-up by reading just the header of each file.</p>
+ *
+ * <p>The text form is only rendered when an order is read (readOrder), or by the ExportOrdersAsText tool.</p>
+ */
+
+public class BinaryOrderStore implements OrderStore {
+    private static final AppLogger log = AppLogger.getLogger(BinaryOrderStore.class);
+
+    public static final String FILE_EXTENSION = ".ord";
+
+    private final Path rootDir;
+    // orderId → state, the logical "state folders"
+    private final ConcurrentHashMap<Integer, OrderState> states = new ConcurrentHashMap<>();
+
+    // Opens the store in rootDir (creating it if needed) and indexes the state of every order in it.
+    public BinaryOrderStore(Path rootDir) throws IOException {
+        this.rootDir = rootDir;
+        Files.createDirectories(rootDir);
+        loadIndex();
+    }
+
+    @Override
+    public void createOrder(Order order) throws IOException {
+        Path path = orderFile(order.getOrderId());
+        if (Files.exists(path)) {
+            log.warn("%s already exists", path);
+            return;
+        }
+        Files.write(path, OrderCodec.encode(order), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        states.put(order.getOrderId(), order.getState());
+        log.debug("%s created", path);
+    }
+
+    @Override
+    public boolean changeState(int orderId, OrderState newState) throws IOException {
+        OrderState current = states.get(orderId);
+        if (current == null || newState.ordinal() != current.ordinal() + 1) { // only Ordered → Progressing → Collected
+            log.warn("Order %d not found in state before %s", orderId, newState);
+            return false;
+        }
+
+        int from = OrderCodec.OFFSET_STATE;
+        int to = OrderCodec.timestampOffset(newState) + Long.BYTES;
+        try (FileChannel channel = FileChannel.open(orderFile(orderId), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the bytes between the state and the new timestamp are written back unchanged
+            ByteBuffer header = ByteBuffer.allocate(to);
+            readFully(channel, header);
+            if (header.hasRemaining()) {
+                throw new IOException("Order file is truncated: " + orderFile(orderId));
+            }
+            header.put(OrderCodec.OFFSET_STATE, (byte) newState.ordinal());
+            header.putLong(OrderCodec.timestampOffset(newState), System.currentTimeMillis());
+            header.position(from);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+        states.put(orderId, newState);
+        return true;
+    }
+
+    @Override
+    public String readOrder(int orderId) throws IOException {
+        Path path = orderFile(orderId);
+        if (!states.containsKey(orderId) || Files.notExists(path)) {
+            throw new IOException("Order file not found: " + path);
+        }
+        return OrderCodec.toText(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    @Override
+    public TreeMap<Integer, OrderState> loadActiveOrders() {
+        TreeMap<Integer, OrderState> activeOrders = new TreeMap<>();
+        states.forEach((orderId, state) -> {
+            if (state != OrderState.Collected) {
+                activeOrders.put(orderId, state);
+            }
+        });
+        return activeOrders;
+    }
+
+    // Decodes the order files of the state index after afterOrderId.
+    @Override
+    public void forEachOrder(int afterOrderId, Consumer<StoredOrder> consumer) {
+        int[] orderIds = states.keySet().stream().mapToInt(Integer::intValue).filter(id -> id > afterOrderId)
+                .sorted().toArray();
+        for (int orderId : orderIds) {
+            try {
+                Order order = OrderCodec.decode(ByteBuffer.wrap(Files.readAllBytes(orderFile(orderId))));
+                List<String> productIds = new ArrayList<>();
+                order.getProductList().forEach(product -> productIds.add(product.getProductId()));
+                consumer.accept(new StoredOrder(orderId, order.getOrderedMillis(),
+                        order.getState(), productIds));
+            } catch (IOException e) {
+                log.warn("Order file %s cannot be read, %s", orderFile(orderId), e.getMessage());
+            }
+        }
+    }
+
+    Path orderFile(int orderId) {
+        return rootDir.resolve(orderId + FILE_EXTENSION); // eg. orders/binary/12.ord
+    }
+
+    // Reads the header of every order file to rebuild the state index.
+    private void loadIndex() throws IOException {
+        try (Stream<Path> files = Files.list(rootDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(FILE_EXTENSION)) continue;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(OrderCodec.HEADER_SIZE);
+                    readFully(channel, header);
+                    header.flip();
+                    if (header.remaining() < OrderCodec.HEADER_SIZE || header.getInt(0) != OrderCodec.MAGIC) {
+                        log.warn("Invalid order file: %s", file);
+                        continue;
+                    }
+                    OrderState state;
+                    try {
+                        state = OrderCodec.state(header);
+                    } catch (IOException e) {
+                        log.warn("Invalid order file: %s, %s", file, e.getMessage());
+                        continue;
+                    }
+                    states.put(OrderCodec.orderId(header), state);
+                }
+            }
+        }
+        log.info("%d binary order files indexed in %s", states.size(), rootDir);
+    }
+
+    // Fills the buffer from the start of the file, stopping early only at the end of the file.
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) break;
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.utility.AppLogger;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CachingDatabaseRW is a decorator around another DatabaseRW (normally DerbyRW) that keeps the product
+ * catalogue in memory, so customer and warehouse searches no longer hit the database on every call.
+ *
+ * <p>Reads:
+ * - At start-up the whole ProductTable is loaded into a ConcurrentHashMap keyed by productID.
+ * - searchByProductId, searchProduct and isProIdAvailable are answered from the map.
+ * - Description searches use a ProductSearchIndex (inverted index) built from the same rows
+ *   and kept in step with the map on every write.
+ * - When nothing matches exactly, a TrigramIndex tries again with fuzzy matching, so typos like "tostr" still find Toaster.
+ * - Type-ahead suggestions come from a ProductAutocomplete snapshot, rebuilt lazily after the catalogue changes.
+ * - If the catalogue is larger than {@code maxSize}, only part of it fits; the cache is then "incomplete"
+ *   and any lookup the map cannot answer for sure is passed to the database.</p>
+ *
+ * <p>Writes (write-through):
+ * - updateProduct, deleteProduct, insertNewProduct and purchaseStocks always go to the database first.
+ * - Afterwards, each affected entry is re-read from the database and replaced (or removed).
+ *   The re-read runs inside ConcurrentHashMap.compute(), so refreshes of the same product never overlap
+ *   and the last refresh always stores the newest database value.</p>
+ *
+ * <p>Stale-stock guard: the stock shown from the cache may be a moment old, but checkout never trusts it.
+ * purchaseStocks is always validated by the database, and the cache is refreshed from the result.</p>
+ *
+ * <p>All clients must share one instance (DatabaseRWFactory does this), otherwise a write made through
+ * one client would not invalidate another client's cache.</p>
+ */
+
+public class CachingDatabaseRW implements DatabaseRW {
+    private static final AppLogger log = AppLogger.getLogger(CachingDatabaseRW.class);
+    private final DatabaseRW database; // the real database, eg DerbyRW
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Product> products = new ConcurrentHashMap<>();
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final TrigramIndex fuzzyIndex = new TrigramIndex();
+    private volatile boolean complete = false; // true when every catalogue row is in the map
+    private final AtomicLong catalogueVersion = new AtomicLong(); // bumped on every change to the catalogue
+    private volatile ProductAutocomplete autocomplete; // immutable snapshot, rebuilt when outdated
+    private volatile long autocompleteVersion = -1;    // catalogueVersion the snapshot was built from
+    private volatile RankedIds lastRanked;             // ranking of the last paged query, reused by its next pages
+
+    // The ranked productIDs of one query, valid while the catalogue is at the given version.
+    private record RankedIds(String query, long version, List<String> productIds) {}
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingDatabaseRW(DatabaseRW database, int maxSize) {
+        this.database = database;
+        this.maxSize = maxSize;
+        reload();
+    }
+
+    /**
+     * (Re)loads the whole catalogue from the database.
+     * If loading fails, the cache stays incomplete and reads are passed to the database.
+     */
+    public synchronized void reload() {
+        complete = false;
+        try {
+            ArrayList<Product> all = database.loadAllProducts();
+            products.clear();
+            for (Product p : all) {
+                if (products.size() >= maxSize) break;
+                products.put(p.getProductId(), p);
+            }
+            searchIndex.rebuild(products.values());
+            fuzzyIndex.rebuild(products.values());
+            catalogueVersion.incrementAndGet();
+            complete = all.size() <= maxSize;
+            log.info("Product cache loaded %d of %d products.", products.size(), all.size());
+        } catch (SQLException e) {
+            log.warn("Product cache could not be loaded, reading from database: %s", e.getMessage());
+        }
+    }
+
+    @Override
+    public Product searchByProductId(String productId) throws SQLException {
+        Product product = products.get(productId);
+        if (product != null || complete) {
+            hits.increment(); // a complete cache also answers "not found"
+            return product;
+        }
+        misses.increment();
+        product = database.searchByProductId(productId);
+        if (product != null && products.size() < maxSize
+                && products.putIfAbsent(product.getProductId(), product) == null) {
+            searchIndex.put(product);
+            fuzzyIndex.put(product);
+            catalogueVersion.incrementAndGet();
+        }
+        return product;
+    }
+
+    // searches by product ID at first, if not found, by the words of the description
+    @Override
+    public ArrayList<Product> searchProduct(String keyword) throws SQLException {
+        if (!complete) {
+            misses.increment();
+            return database.searchProduct(keyword);
+        }
+        Product product = products.get(keyword);
+        if (product != null) {
+            hits.increment();
+            ArrayList<Product> productList = new ArrayList<>();
+            productList.add(product);
+            return productList;
+        }
+        return searchByDescription(keyword);
+    }
+
+    // ranked AND search over description words, answered by the inverted index (or the trigram index if nothing matches)
+    @Override
+    public ArrayList<Product> searchByDescription(String query) throws SQLException {
+        if (!complete) {
+            misses.increment();
+            return database.searchByDescription(query);
+        }
+        hits.increment();
+        List<String> productIds = searchIndex.search(query);
+        if (productIds.isEmpty()) {
+            productIds = fuzzyIndex.search(query); // maybe misspelled, try similar words
+        }
+        ArrayList<Product> productList = new ArrayList<>();
+        for (String productId : productIds) {
+            Product p = products.get(productId);
+            if (p != null) productList.add(p); // may have been deleted since the index lookup
+        }
+        return productList;
+    }
+
+    // one page of the description search in productID order, walked from the cursor in the index postings
+    @Override
+    public ArrayList<Product> searchByDescriptionPage(String query, String afterProductId, int limit) throws SQLException {
+        if (!complete) {
+            misses.increment();
+            return database.searchByDescriptionPage(query, afterProductId, limit);
+        }
+        hits.increment();
+        List<String> productIds;
+        if (!searchIndex.page(query, null, 1).isEmpty()) {
+            productIds = searchIndex.page(query, afterProductId, limit);
+        } else { // nothing matches exactly: page through the fuzzy matches (few, so sorting them is cheap)
+            productIds = new ArrayList<>();
+            List<String> fuzzy = new ArrayList<>(fuzzyIndex.search(query));
+            fuzzy.sort(null);
+            for (String id : fuzzy) {
+                if (productIds.size() >= limit) break;
+                if (afterProductId == null || id.compareTo(afterProductId) > 0) productIds.add(id);
+            }
+        }
+        ArrayList<Product> productList = new ArrayList<>();
+        for (String productId : productIds) {
+            Product p = products.get(productId);
+            if (p != null) productList.add(p);
+        }
+        return productList;
+    }
+
+    // one page of the ranked description search; the ranking is computed for the first page and
+    // reused by the next pages of the same query until the catalogue changes.
+    // An incomplete cache passes the keyset cursor on to the database instead.
+    @Override
+    public ArrayList<Product> searchByDescriptionRanked(String query, int offset, String afterProductId, int limit)
+            throws SQLException {
+        if (!complete) {
+            misses.increment();
+            return database.searchByDescriptionRanked(query, offset, afterProductId, limit);
+        }
+        hits.increment();
+        long version = catalogueVersion.get();
+        RankedIds ranked = lastRanked;
+        if (ranked == null || ranked.version() != version || !ranked.query().equals(query)) {
+            List<String> productIds = searchIndex.search(query);
+            if (productIds.isEmpty()) {
+                productIds = fuzzyIndex.search(query);
+            }
+            ranked = new RankedIds(query, version, List.copyOf(productIds));
+            lastRanked = ranked;
+        }
+        ArrayList<Product> productList = new ArrayList<>();
+        List<String> productIds = ranked.productIds();
+        for (int i = Math.max(offset, 0); i < productIds.size() && productList.size() < limit; i++) {
+            Product p = products.get(productIds.get(i));
+            if (p != null) productList.add(p);
+        }
+        return productList;
+    }
+
+    // type-ahead suggestions from memory only, never from the database
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        long version = catalogueVersion.get();
+        ProductAutocomplete snapshot = autocomplete;
+        if (snapshot == null || autocompleteVersion != version) {
+            // a change during the rebuild bumps the version again, so the next call rebuilds once more
+            snapshot = new ProductAutocomplete(products.values());
+            autocomplete = snapshot;
+            autocompleteVersion = version;
+        }
+        return snapshot.suggest(prefix, limit);
+    }
+
+    @Override
+    public boolean isProIdAvailable(String productId) throws SQLException {
+        if (complete) {
+            hits.increment();
+            return !products.containsKey(productId);
+        }
+        misses.increment();
+        return database.isProIdAvailable(productId);
+    }
+
+    @Override
+    public ArrayList<Product> loadAllProducts() throws SQLException {
+        return database.loadAllProducts();
+    }
+
+    /**
+     * Checkout is always validated by the database (the cached stock may be stale),
+     * then the purchased products are refreshed from the database.
+     */
+    @Override
+    public ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException {
+        ArrayList<Product> insufficientProducts = database.purchaseStocks(proList);
+        for (Product p : proList) {
+            refresh(p.getProductId());
+        }
+        return insufficientProducts;
+    }
+
+    @Override
+    public void updateProduct(String id, String des, double price, String imageName, int stock) throws SQLException {
+        database.updateProduct(id, des, price, imageName, stock);
+        refresh(id);
+    }
+
+    @Override
+    public void deleteProduct(String id) throws SQLException {
+        database.deleteProduct(id);
+        products.computeIfPresent(id, (key, old) -> {
+            searchIndex.remove(key);
+            fuzzyIndex.remove(key);
+            catalogueVersion.incrementAndGet();
+            return null;
+        });
+    }
+
+    @Override
+    public void insertNewProduct(String id, String des, double price, String image, int stock) throws SQLException {
+        database.insertNewProduct(id, des, price, image, stock);
+        if (products.size() >= maxSize) {
+            complete = false; // the catalogue no longer fits, fall back to the database for unknown IDs
+        } else {
+            refresh(id);
+        }
+    }
+
+    // Re-reads one product from the database into the map and the search index (removing it if it no longer exists).
+    // DerbyRW.searchByProductId also returns null when the query fails, so a delete is confirmed before evicting.
+    private void refresh(String productId) {
+        try {
+            products.compute(productId, (id, old) -> {
+                try {
+                    Product fresh = database.searchByProductId(id);
+                    if (fresh == null && !database.isProIdAvailable(id)) {
+                        throw new SQLException("Product " + id + " exists but could not be re-read");
+                    }
+                    if (fresh == null) {
+                        searchIndex.remove(id);
+                        fuzzyIndex.remove(id);
+                        catalogueVersion.incrementAndGet();
+                    } else if (old == null || !old.getProductDescription().equals(fresh.getProductDescription())) {
+                        searchIndex.put(fresh); // only re-index when the description changed
+                        fuzzyIndex.put(fresh);
+                        catalogueVersion.incrementAndGet();
+                    }
+                    return fresh;
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            // we no longer know the true value: drop it and stop answering "not found" from memory
+            products.remove(productId);
+            searchIndex.remove(productId);
+            fuzzyIndex.remove(productId);
+            catalogueVersion.incrementAndGet();
+            complete = false;
+            log.warn("Product cache refresh failed for %s: %s", productId, e.getCause());
+        }
+    }
+
+    // metrics
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int size() { return products.size(); }
+    public boolean isComplete() { return complete; }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProductCache[size=%d, max=%d, complete=%b, hits=%d, misses=%d, hitRate=%.1f%%]",
+                size(), maxSize, complete, getHits(), getMisses(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,19 @@
+package ci553.happyshop.storageAccess;
+
+/**
+ * Selects how DatabaseRW.purchaseStocks() reduces stock during checkout.
+ *
+ * - LOCKED: the original path. The products in the trolley are locked in Java (ProductLockManager),
+ *   the current stock of each product is read with a SELECT, and the updates are then run as one batch.
+ * - OPTIMISTIC: no Java lock and no SELECT. Each line is a conditional
+ *   "UPDATE ... SET inStock = inStock - ? WHERE productId = ? AND inStock >= ?";
+ *   an update count of 0 means the stock was insufficient, and only then is the transaction rolled back.
+ *   The database's own row locks keep concurrent checkouts correct.
+ *
+ * The mode is chosen in DatabaseRWFactory.checkoutMode so both paths can be compared under load.
+ */
+
+public enum CheckoutMode {
+    LOCKED,
+    OPTIMISTIC
+}
@@ -0,0 +1,380 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.AppLogger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionPool keeps a bounded set of open JDBC connections that DerbyRW borrows and returns,
+ * instead of opening a brand-new connection through DriverManager for every single query.
+ *
+ * <p>How it works:
+ * - At most {@code maxSize} connections exist at any time; a Semaphore hands out the permits.
+ * - Returned connections go back to an idle deque (most recently used first, so warm connections are reused).
+ * - A borrower waits at most {@code borrowTimeoutMillis} for a permit, then gets an SQLTimeoutException.
+ * - Connections that sat idle for longer than {@code validationIntervalMillis} are validated before reuse.
+ * - A background housekeeper evicts connections idle for longer than {@code idleTimeoutMillis}
+ *   (never shrinking below {@code minSize}), tops the pool back up to {@code minSize},
+ *   and reports connections held for longer than {@code leakThresholdMillis} as possible leaks,
+ *   with the borrowing thread and time. The stack trace of the borrow is only captured when
+ *   {@code leakTrace} is on (-Dhappyshop.pool.leakTrace=true), as it is too costly for every borrow.
+ * - Every physical connection carries its own StatementCache, so prepareStatement(sql) on a borrowed
+ *   connection reuses the statement Derby already compiled for that SQL text.</p>
+ *
+ * <p>Callers keep using the plain JDBC style:
+ * <pre>
+ *     try (Connection conn = pool.getConnection()) { ... }
+ * </pre>
+ * The returned Connection is a thin proxy whose close() gives the connection back to the pool
+ * rather than closing it. Any transaction left open by the borrower is rolled back on return.</p>
+ *
+ * <p>Metrics (borrow wait time, active/idle counts, timeouts, leaks, statement cache hits/misses) are available through
+ * {@link #getMetrics()} so the pool can be sized from real numbers.</p>
+ */
+
+public class ConnectionPool {
+    private static final AppLogger log = AppLogger.getLogger(ConnectionPool.class);
+
+    // capture the stack of every borrow, to show where a leaked connection was borrowed
+    public static boolean leakTrace = Boolean.getBoolean("happyshop.pool.leakTrace");
+
+    private final String dbURL;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits; // one permit per connection that may be handed out
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openCount = new AtomicInteger(); // idle + borrowed
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * @param dbURL                    the JDBC URL connections are opened with
+     * @param minSize                  connections kept open even when idle
+     * @param maxSize                  upper bound on open connections
+     * @param borrowTimeoutMillis      how long getConnection() waits for a free connection
+     * @param idleTimeoutMillis        idle time after which a connection above minSize is closed
+     * @param validationIntervalMillis idle time after which a connection is validated before reuse
+     * @param leakThresholdMillis      hold time after which a borrowed connection is reported, 0 to disable
+     * @param statementCacheSize       prepared statements cached per connection, 0 to disable
+     */
+    public ConnectionPool(String dbURL, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.dbURL = dbURL;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true); // fair, so waiting borrowers are served in order
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true); // must not keep the JVM alive
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 10_000));
+        housekeeper.scheduleWithFixedDelay(this::houseKeeping, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     * The caller must close() the returned connection to give it back.
+     *
+     * @throws SQLTimeoutException if no connection becomes free within the borrow timeout
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool max size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc = takeIdleConnection();
+            if (pc == null) {
+                pc = openConnection();
+            }
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.leakReported = false;
+            pc.borrowThread = Thread.currentThread().getName();
+            pc.borrowSite = leakThresholdMillis > 0 && leakTrace ? new Throwable("Connection borrowed here") : null;
+            borrowedConnections.add(pc);
+            recordWait(System.nanoTime() - start);
+            return pc.newLease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release(); // borrowing failed, give the permit back
+            throw e;
+        }
+    }
+
+    // Takes the most recently returned idle connection, validating it if it has been idle for a while.
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pc;
+        while ((pc = idleConnections.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - pc.returnedAt;
+            if (idleFor < validationIntervalMillis || isValid(pc)) {
+                return pc;
+            }
+            discard(pc); // broken connection, try the next one
+        }
+        return null;
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(dbURL);
+        openCount.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(raw);
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return !pc.raw.isClosed() && pc.raw.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Called by a lease when the borrower closes it: reset the connection and make it idle again.
+    private void giveBack(PooledConnection pc) {
+        if (!borrowedConnections.remove(pc)) {
+            return; // already returned
+        }
+        try {
+            pc.statementCache.releaseAll(); // reset statements the borrower forgot to close
+            if (!pc.raw.getAutoCommit()) {
+                pc.raw.rollback(); // never hand an open transaction to the next borrower
+                pc.raw.setAutoCommit(true);
+            }
+            pc.returnedAt = System.currentTimeMillis();
+            pc.borrowSite = null;
+            if (closed) {
+                discard(pc);
+            } else {
+                idleConnections.offerFirst(pc);
+            }
+        } catch (SQLException e) {
+            log.warn("Discarding broken pooled connection: %s", e.getMessage());
+            discard(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        openCount.decrementAndGet();
+        evictedCount.increment();
+        pc.statementCache.closeAll();
+        try {
+            pc.raw.close();
+        } catch (SQLException ignored) {
+            // the connection is being thrown away anyway
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // Periodic task: evict long-idle connections, keep minSize connections open, report leaks.
+    private void houseKeeping() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idleConnections.descendingIterator(); // least recently used first
+        while (it.hasNext() && openCount.get() > minSize) {
+            PooledConnection pc = it.next();
+            if (now - pc.returnedAt > idleTimeoutMillis && idleConnections.remove(pc)) {
+                discard(pc);
+            }
+        }
+
+        try {
+            while (openCount.get() < minSize) {
+                PooledConnection pc = openConnection();
+                pc.returnedAt = now;
+                idleConnections.offerLast(pc);
+            }
+        } catch (SQLException e) {
+            log.error("Connection pool could not open a connection: %s", e.getMessage());
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pc : borrowedConnections) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis) {
+                    pc.leakReported = true;
+                    leakCount.increment();
+                    // the stack trace (if leakTrace is on) shows where the connection was borrowed
+                    log.warn(pc.borrowSite, "Possible connection leak: connection borrowed by thread %s at %s, held for %d ms",
+                            pc.borrowThread, Instant.ofEpochMilli(pc.borrowedAt), now - pc.borrowedAt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeper.
+     * Connections still borrowed are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idleConnections.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    /** Returns a point-in-time snapshot of the pool counters. */
+    public Metrics getMetrics() {
+        long borrows = borrowCount.sum();
+        double avgWaitMillis = borrows == 0 ? 0 : totalWaitNanos.sum() / (double) borrows / 1_000_000;
+        return new Metrics(borrowedConnections.size(), idleConnections.size(), maxSize, borrows,
+                avgWaitMillis, maxWaitNanos.get() / 1_000_000.0, timeoutCount.sum(),
+                createdCount.sum(), evictedCount.sum(), leakCount.sum(),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    /**
+     * A snapshot of the pool counters, used to size the pool.
+     */
+    public record Metrics(int active, int idle, int maxSize, long borrows, double avgWaitMillis,
+                          double maxWaitMillis, long timeouts, long created, long evicted, long leaks,
+                          long statementCacheHits, long statementCacheMisses) {
+
+        public double statementCacheHitRate() {
+            long total = statementCacheHits + statementCacheMisses;
+            return total == 0 ? 0 : (double) statementCacheHits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[active=%d, idle=%d, max=%d, borrows=%d, avgWait=%.3f ms, maxWait=%.3f ms, "
+                            + "timeouts=%d, created=%d, evicted=%d, leaks=%d, stmtHits=%d, stmtMisses=%d (%.1f%%)]",
+                    active, idle, maxSize, borrows, avgWaitMillis, maxWaitMillis, timeouts, created, evicted, leaks,
+                    statementCacheHits, statementCacheMisses, statementCacheHitRate() * 100);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, plus the bookkeeping the pool needs about it.
+     * Each borrow gets a fresh lease (proxy), so a stale reference kept after close() cannot
+     * interfere with the next borrower of the same physical connection.
+     */
+    private class PooledConnection {
+        private final Connection raw;
+        private final StatementCache statementCache;
+        private volatile long borrowedAt;
+        private volatile long returnedAt;
+        private volatile boolean leakReported;
+        private volatile String borrowThread;
+        private volatile Throwable borrowSite; // null unless leakTrace is on
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statementCache = new StatementCache(statementCacheSize, statementCacheHits, statementCacheMisses);
+        }
+
+        Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    // Intercepts close() on a borrowed connection; everything else goes to the physical connection.
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned = false;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.raw.isClosed();
+                case "prepareStatement":
+                    if (!returned && args.length == 1) { // prepareStatement(String sql)
+                        return pc.statementCache.prepare(pc.raw, (String) args[0]);
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ci553.happyshop.catalogue.Product;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The DatabaseRW interface defines the contract for interacting with the product database.
@@ -37,6 +38,66 @@ public interface DatabaseRW {
      */
     ArrayList<Product> searchProduct(String keyword) throws SQLException;
 
+    /**
+     * Searches product descriptions for all the words in the query (eg "usb drive"), best match first.
+     * CachingDatabaseRW answers this from an in-memory inverted index (ProductSearchIndex).
+     * Implementations without a description search keep this default, which falls back to searchProduct().
+     *
+     * @param query one or more words
+     * @return the matching products, ranked by relevance
+     */
+    default ArrayList<Product> searchByDescription(String query) throws SQLException {
+        return searchProduct(query);
+    }
+
+    /**
+     * Returns one page of the products whose description contains all the words in the query,
+     * ordered by product ID (keyset pagination).
+     * The first page is requested with afterProductId = null; each next page with the ID of the last product
+     * of the previous page. A page shorter than limit is the last one.
+     * Unlike OFFSET paging, a page costs the same no matter how deep the customer scrolls,
+     * and inserts or deletes between two pages never cause rows to be skipped or repeated.
+     * Implementations without a paged query keep this default, which pages the result of searchByDescription().
+     *
+     * @param query          one or more words
+     * @param afterProductId the cursor: only products with a greater ID are returned, or null for the first page
+     * @param limit          the maximum page size
+     * @return up to limit matching products, ordered by product ID
+     */
+    default ArrayList<Product> searchByDescriptionPage(String query, String afterProductId, int limit) throws SQLException {
+        ArrayList<Product> all = searchByDescription(query);
+        ArrayList<Product> page = new ArrayList<>();
+        if (all == null) return page;
+        all.sort((p1, p2) -> p1.getProductId().compareTo(p2.getProductId()));
+        for (Product p : all) {
+            if (page.size() >= limit) break;
+            if (afterProductId == null || p.getProductId().compareTo(afterProductId) > 0) {
+                page.add(p);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Returns one page of the description search in the best order the implementation has.
+     * The caller passes both how many products it has loaded and the last of them, and each implementation
+     * uses the cursor that fits its order:
+     * - CachingDatabaseRW ranks by relevance in memory and pages the ranking by offset
+     *   (a product added or removed between two pages can shift the later pages by one).
+     * - Implementations without ranking, eg. DerbyRW, return products in productID order and keep this default,
+     *   which is the keyset paging of searchByDescriptionPage(), so no page reads the whole result.
+     *
+     * @param query          one or more words
+     * @param offset         the number of products already loaded, 0 for the first page
+     * @param afterProductId the last product already loaded, or null for the first page
+     * @param limit          the maximum page size
+     * @return up to limit matching products; a page shorter than limit is the last one
+     */
+    default ArrayList<Product> searchByDescriptionRanked(String query, int offset, String afterProductId, int limit)
+            throws SQLException {
+        return searchByDescriptionPage(query, afterProductId, limit);
+    }
+
     /**
      * Searches for a product by its unique product ID.
      * @param productId the product ID
@@ -49,6 +110,7 @@ public interface DatabaseRW {
      * Behavior:
      * - If all requested quantities are available, stocks are reduced and an empty list is returned.
      * - If any product does not have sufficient stock, no stock is updated and a list of all insufficient products is returned.
+     * How the stock is checked (Java lock + SELECT, or conditional UPDATE) depends on the configured CheckoutMode.
      *
      * @param proList the list of products with requested quantities to purchase
      */
@@ -86,6 +148,25 @@ public interface DatabaseRW {
      * @return true if the ID is available, false if it already exists in the database
      */
     boolean isProIdAvailable(String productId) throws SQLException;
+
+    /**
+     * Suggests search terms (product IDs and description words) starting with what the user typed so far.
+     * Suggestions must come from memory, without a database round-trip, because they are requested on every keystroke;
+     * implementations without an in-memory catalogue keep this default and suggest nothing.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return suggested terms, best first
+     */
+    default List<String> suggest(String prefix, int limit) {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Loads every product in the catalogue, ordered by product ID.
+     * Used to warm up in-memory caches such as CachingDatabaseRW.
+     */
+    ArrayList<Product> loadAllProducts() throws SQLException;
 }
 
 
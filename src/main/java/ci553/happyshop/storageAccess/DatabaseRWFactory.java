@@ -6,6 +6,10 @@ package ci553.happyshop.storageAccess;
  *
  * Responsibilities:
  * - Holds the database URL used to connect to the database.
+ * - Holds the connection pool settings and the single ConnectionPool shared by every DatabaseRW.
+ * - Holds the single ProductLockManager shared by every DatabaseRW, so stock changes made through
+ *   different clients (each client has its own DatabaseRW) are still coordinated.
+ * - Optionally wraps the database in one shared CachingDatabaseRW, the in-memory product catalogue.
  * - Creates instances of DatabaseRW (e.g., DerbyRW, MySQLRW, SQLiteRW).
  *
  * Benefits:
@@ -24,11 +28,68 @@ public class DatabaseRWFactory {
 
     public static String dbURL = "jdbc:derby:happyShopDB"; //or other database URL in the future (eg MySQLRW or SQLiteRW)
 
+    // Connection pool settings, change them before the first createDatabaseRW() call
+    public static int poolMinSize = 2;                   // connections kept open even when idle
+    public static int poolMaxSize = 10;                  // upper bound on open connections
+    public static long poolBorrowTimeoutMillis = 5000;   // how long a borrower waits for a free connection
+    public static long poolIdleTimeoutMillis = 60_000;   // idle connections above poolMinSize are closed after this
+    public static long poolValidationIntervalMillis = 5000; // idle connections older than this are validated before reuse
+    public static long poolLeakThresholdMillis = 30_000; // borrowed connections held longer than this are reported
+    public static int statementCacheSize = 20;           // prepared statements cached per pooled connection
+
+    public static int productLockStripes = 64;           // number of per-product lock stripes
+    public static CheckoutMode checkoutMode = CheckoutMode.LOCKED; // or CheckoutMode.OPTIMISTIC, see CheckoutMode
+    public static boolean productCacheEnabled = true;    // serve searches from the in-memory catalogue
+    public static int productCacheMaxSize = 10_000;      // products kept in memory
+
+    private static ConnectionPool connectionPool; // shared by all DatabaseRW instances
+    private static ProductLockManager productLockManager; // shared by all DatabaseRW instances
+    private static CachingDatabaseRW productCache; // shared by all clients, so every write invalidates the same cache
+
     /**
      * Creates an instance of DatabaseRW (currently returning DerbyRW, but can be modified to return other implementations).
+     * Every instance borrows its connections from the same shared ConnectionPool
+     * and locks products through the same shared ProductLockManager.
+     * The checkoutMode setting selects how purchaseStocks() reduces stock.
+     * When productCacheEnabled is set, all clients get the same CachingDatabaseRW wrapped around DerbyRW.
      */
     public static DatabaseRW createDatabaseRW() {
-        return new DerbyRW(); // or other database implementations in the future (eg MySQLRW or SQLiteRW)
+        if (productCacheEnabled) {
+            return getProductCache();
+        }
+        return createDerbyRW();
+    }
+
+    private static DatabaseRW createDerbyRW() {
+        return new DerbyRW(getConnectionPool(), getProductLockManager(), checkoutMode); // or other database implementations in the future (eg MySQLRW or SQLiteRW)
+    }
+
+    // Returns the shared product cache, loading the catalogue on first use.
+    public static synchronized CachingDatabaseRW getProductCache() {
+        if (productCache == null) {
+            productCache = new CachingDatabaseRW(createDerbyRW(), productCacheMaxSize);
+        }
+        return productCache;
+    }
+
+    /**
+     * Returns the shared ConnectionPool, creating it on first use.
+     * Also useful for reading pool metrics, eg. DatabaseRWFactory.getConnectionPool().getMetrics()
+     */
+    public static synchronized ConnectionPool getConnectionPool() {
+        if (connectionPool == null) {
+            connectionPool = new ConnectionPool(dbURL, poolMinSize, poolMaxSize, poolBorrowTimeoutMillis,
+                    poolIdleTimeoutMillis, poolValidationIntervalMillis, poolLeakThresholdMillis, statementCacheSize);
+        }
+        return connectionPool;
+    }
+
+    // Returns the shared ProductLockManager, creating it on first use.
+    public static synchronized ProductLockManager getProductLockManager() {
+        if (productLockManager == null) {
+            productLockManager = new ProductLockManager(productLockStripes);
+        }
+        return productLockManager;
     }
 }
 
@@ -1,11 +1,11 @@
 package ci553.happyshop.storageAccess;
 
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.utility.AppLogger;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
 
 /** ProductTable definition
  * "CREATE TABLE ProductTable(" +
@@ -19,8 +19,19 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 
 public class DerbyRW implements DatabaseRW {
-    private static String dbURL = DatabaseRWFactory.dbURL; // Shared by all instances
-    private  Lock lock = new ReentrantLock(); // Each instance has its own lock
+    private static final AppLogger log = AppLogger.getLogger(DerbyRW.class);
+
+    private final ConnectionPool connectionPool; // Shared by all instances, created by DatabaseRWFactory
+    private final ProductLockManager productLocks; // Shared by all instances, per-product locks for stock changes
+    private final CheckoutMode checkoutMode; // how purchaseStocks() reduces stock, see CheckoutMode
+
+    private static final int MAX_CHECKOUT_ATTEMPTS = 3; // optimistic checkout retries after a deadlock or lock timeout
+
+    public DerbyRW(ConnectionPool connectionPool, ProductLockManager productLocks, CheckoutMode checkoutMode) {
+        this.connectionPool = connectionPool;
+        this.productLocks = productLocks;
+        this.checkoutMode = checkoutMode;
+    }
 
     //search product by product Id or name, return a list of products or null
     //search by Id at first, if get null, search by product name
@@ -39,7 +50,7 @@ public class DerbyRW implements DatabaseRW {
 
         // If still no products found, print a message
         if (productList.isEmpty()) {
-            System.out.println("Product " + keyword + " not found.");
+            log.debug("Product %s not found.", keyword);
         }
         return productList;
     }
@@ -49,7 +60,7 @@ public class DerbyRW implements DatabaseRW {
         Product product = null;
         String query = "SELECT * FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             // Set the productId parameter
             pstmt.setString(1, proId);
@@ -57,14 +68,14 @@ public class DerbyRW implements DatabaseRW {
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()){
                     product= makeProObjFromDbRecord(rs);
-                    System.out.println("Product " + proId + " found.");
+                    log.debug("Product %s found.", proId);
                 }else{
-                    System.out.println("Product " + proId + " not found.");
+                    log.debug("Product %s not found.", proId);
                 }
 
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error(e, "Database query error, search by ID: %s", proId);
         }
         return product;
     }
@@ -75,7 +86,7 @@ public class DerbyRW implements DatabaseRW {
         ArrayList<Product> productList = new ArrayList<>();
         String query = "SELECT * FROM ProductTable WHERE LOWER(description) LIKE LOWER(?)";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, "%" + name.toLowerCase() + "%");
@@ -86,17 +97,109 @@ public class DerbyRW implements DatabaseRW {
                 }
 
                 if (productList.isEmpty()) {
-                    System.out.println("Product " + name + " not found.");
+                    log.debug("Product %s not found.", name);
                 }
             }
 
         } catch (SQLException e) {
-            System.out.println("Database query error, search by name: " + name + " " + e.getMessage());
+            log.error("Database query error, search by name: %s %s", name, e.getMessage());
         }
 
         return productList; // could be empty if no matches
     }
 
+    //load the whole catalogue, used to warm up CachingDatabaseRW
+    public ArrayList<Product> loadAllProducts() throws SQLException {
+        ArrayList<Product> productList = new ArrayList<>();
+        String query = "SELECT * FROM ProductTable ORDER BY productID";
+
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                productList.add(new Product(rs.getString("productID"), rs.getString("description"),
+                        rs.getString("image"), rs.getDouble("unitPrice"), rs.getInt("inStock")));
+            }
+        }
+        log.info("%d products loaded from database.", productList.size());
+        return productList;
+    }
+
+    //search by all words of the query appearing in the description (AND), return a List of products
+    //used when there is no in-memory index (see CachingDatabaseRW)
+    //LIKE '%word%' only finds the candidates; they are then kept only if every word starts a word of the
+    //description (ProductSearchIndex.matchesAllWords), so both paths return the same products
+    public ArrayList<Product> searchByDescription(String query) throws SQLException {
+        List<String> words = ProductSearchIndex.tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM ProductTable WHERE ");
+        for (int i = 0; i < words.size(); i++) {
+            sql.append(i == 0 ? "" : " AND ").append("LOWER(description) LIKE ?");
+        }
+        sql.append(" ORDER BY productID");
+
+        ArrayList<Product> productList = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < words.size(); i++) {
+                stmt.setString(i + 1, "%" + words.get(i) + "%");
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Product product = makeProObjFromDbRecord(rs);
+                    if (ProductSearchIndex.matchesAllWords(product.getProductDescription(), words)) {
+                        productList.add(product);
+                    }
+                }
+            }
+        }
+        return productList;
+    }
+
+    //one page of searchByDescription ordered by productID, starting after the cursor (keyset pagination)
+    //the index on the primary key lets Derby start at the cursor instead of skipping the earlier rows
+    //candidates that are not word matches are dropped, and more rows are fetched until the page is full
+    public ArrayList<Product> searchByDescriptionPage(String query, String afterProductId, int limit) throws SQLException {
+        List<String> words = ProductSearchIndex.tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM ProductTable WHERE productID > ?");
+        for (int i = 0; i < words.size(); i++) {
+            sql.append(" AND LOWER(description) LIKE ?");
+        }
+        sql.append(" ORDER BY productID FETCH FIRST ? ROWS ONLY");
+
+        ArrayList<Product> productList = new ArrayList<>();
+        String cursor = afterProductId == null ? "" : afterProductId;
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            boolean moreRows = true;
+            while (moreRows && productList.size() < limit) {
+                stmt.setString(1, cursor);
+                for (int i = 0; i < words.size(); i++) {
+                    stmt.setString(i + 2, "%" + words.get(i) + "%");
+                }
+                stmt.setInt(words.size() + 2, limit);
+                int rows = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next() && productList.size() < limit) {
+                        rows++;
+                        Product product = makeProObjFromDbRecord(rs);
+                        cursor = product.getProductId();
+                        if (ProductSearchIndex.matchesAllWords(product.getProductDescription(), words)) {
+                            productList.add(product);
+                        }
+                    }
+                }
+                moreRows = rows == limit;
+            }
+        }
+        return productList;
+    }
+
     //make a Product object from the database record
     private Product makeProObjFromDbRecord(ResultSet rs) throws SQLException {
         Product product = null;
@@ -107,36 +210,34 @@ public class DerbyRW implements DatabaseRW {
         int inStock = rs.getInt("inStock");
         product =new Product(productId,description,imagePath,unitPrice,inStock);
 
-        // Show product details
-        System.out.println("Product ID: " + productId);
-        System.out.println("Description: " + description);
-        System.out.println("Image: " + imagePath);
-        System.out.println("unitPrice: " + unitPrice);
-
-        // Check availability and display message
-        if(inStock <= 0){
-            System.out.println("Product " + productId+ " is NOT in stock");
-        }
-        else if(inStock < 10) {
-            System.out.println("Product " + productId+ "low stock warning!" + inStock + " units left.");
-        }
-        else {
-            System.out.println("Product " + productId+ " is available");
+        // Show product details and availability, only when debugging (this runs for every row read)
+        if (log.isDebugEnabled()) {
+            String availability = inStock <= 0 ? "NOT in stock"
+                    : inStock < 10 ? "low stock warning! " + inStock + " units left." : "available";
+            log.debug("Product ID: %s, Description: %s, Image: %s, unitPrice: %.2f, %s",
+                    productId, description, imagePath, unitPrice, availability);
         }
-
-        System.out.println("-----"); // Divider for readability
         return product;
     }
 
     public ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException {
-        lock.lock();  // Lock the critical section to prevent concurrent access
+        if (checkoutMode == CheckoutMode.OPTIMISTIC) {
+            return purchaseStocksOptimistic(proList);
+        }
+
+        // Lock only the products in this trolley (in a fixed order), so checkouts on other products run in parallel
+        ArrayList<String> productIds = new ArrayList<>();
+        for (Product product : proList) {
+            productIds.add(product.getProductId());
+        }
+        int[] lockedStripes = productLocks.lockProducts(productIds);
         ArrayList<Product> insufficientProducts = new ArrayList<>();
 
         String checkSql = "SELECT inStock FROM ProductTable WHERE productId = ?";
         String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productId = ?";
 
         // Use try-with-resources for Connection and PreparedStatements
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
+        try (Connection conn = connectionPool.getConnection()) {
             conn.setAutoCommit(false); // Turn off auto-commit for transaction
 
             // Use a second try-with-resources for the PreparedStatements
@@ -153,25 +254,19 @@ public class DerbyRW implements DatabaseRW {
                         int currentStock = rs.getInt("inStock");
                         int newStock = currentStock - product.getOrderedQuantity();
 
-                        // Debugging: Print values before update
-                        System.out.println("Product ID: " + product.getProductId());
-                        System.out.println("Before change: " + currentStock);
-                        System.out.println("Quantity Ordered: " + product.getOrderedQuantity());
+                        // Debugging: values before and after the update
+                        log.debug("Product ID: %s, before change: %d, quantity ordered: %d, after change: %d",
+                                product.getProductId(), currentStock, product.getOrderedQuantity(), newStock);
 
                         if (newStock >= 0) { // Ensure stock doesn't go negative
                             updateStmt.setInt(1, product.getOrderedQuantity());
                             updateStmt.setString(2, product.getProductId());
                             updateStmt.addBatch();
-
-                            // Debugging: Print values after update
-                            System.out.println("After change: " + newStock);
-                            System.out.println("Update successful for Product ID: " + product.getProductId());
                         } else {
                             insufficientProducts.add(product);
                             allSufficient = false; // Mark that there's at least one insufficient product
-                            System.out.println("Not enough stock for Product ID: " + product.getProductId());
+                            log.debug("Not enough stock for Product ID: %s", product.getProductId());
                         }
-                        System.out.println("--------------------------------");
                     }
                 }
 
@@ -179,28 +274,82 @@ public class DerbyRW implements DatabaseRW {
                     // If all products have sufficient stock, execute the batch and commit
                     updateStmt.executeBatch();
                     conn.commit();  // Commit all updates if all updates succeed
-                    System.out.println("Database update successful.");
+                    log.debug("Database update successful.");
                 } else {
                     // If there's insufficient stock for any product, rollback the entire transaction
                     conn.rollback();
-                    System.out.println("Insufficient stock for some products, all updates rolled back.");
+                    log.info("Insufficient stock for some products, all updates rolled back.");
                 }
 
             } catch (SQLException e) {
                 conn.rollback();  // Rollback if anything failed inside
-                System.out.println("Database update error, update failed");
+                log.error(e, "Database update error, update failed");
             }
         } finally {
-            lock.unlock(); // Always release the lock after the operation
+            productLocks.unlock(lockedStripes); // Always release the locks after the operation
         }
 
         return insufficientProducts;
     }
 
+    /**
+     * Checkout without a Java lock and without reading stock first.
+     * Each line is a conditional UPDATE that only succeeds if enough stock is left; the update counts
+     * tell which products were insufficient (a product deleted since it was searched also counts as insufficient).
+     * If every line succeeded the transaction is committed, otherwise it is rolled back.
+     * Derby's row locks serialize checkouts that share a product; a deadlock or lock timeout is retried.
+     */
+    private ArrayList<Product> purchaseStocksOptimistic(ArrayList<Product> proList) throws SQLException {
+        String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productId = ? AND inStock >= ?";
+
+        for (int attempt = 1; ; attempt++) {
+            ArrayList<Product> insufficientProducts = new ArrayList<>();
+            try (Connection conn = connectionPool.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                    for (Product product : proList) {
+                        updateStmt.setInt(1, product.getOrderedQuantity());
+                        updateStmt.setString(2, product.getProductId());
+                        updateStmt.setInt(3, product.getOrderedQuantity());
+                        updateStmt.addBatch();
+                    }
+
+                    int[] updateCounts = updateStmt.executeBatch();
+                    for (int i = 0; i < updateCounts.length; i++) {
+                        if (updateCounts[i] == 0) { // condition inStock >= ? failed
+                            insufficientProducts.add(proList.get(i));
+                        }
+                    }
+
+                    if (insufficientProducts.isEmpty()) {
+                        conn.commit();
+                        log.debug("Database update successful.");
+                    } else {
+                        conn.rollback(); // only needed when some stock was insufficient
+                        log.info("Insufficient stock for some products, all updates rolled back.");
+                    }
+                    return insufficientProducts;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (attempt >= MAX_CHECKOUT_ATTEMPTS || !isRetryable(e)) {
+                        throw e;
+                    }
+                    log.warn("Checkout conflict (%s), retrying", e.getSQLState());
+                }
+            }
+        }
+    }
+
+    // 40001 = deadlock, 40XL1 = lock wait timeout
+    private boolean isRetryable(SQLException e) {
+        SQLException cause = e instanceof BatchUpdateException && e.getNextException() != null ? e.getNextException() : e;
+        return "40001".equals(cause.getSQLState()) || "40XL1".equals(cause.getSQLState());
+    }
+
 
     //warehouse edits an existing product
     public void updateProduct(String id, String des, double price, String iName, int stock) throws SQLException {
-        lock.lock();
+        int[] lockedStripe = productLocks.lockProduct(id);
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String updateSql = "UPDATE ProductTable SET " +
                 "description = ?, " +
@@ -209,7 +358,7 @@ public class DerbyRW implements DatabaseRW {
                 "inStock = ? " +
                 "WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
              PreparedStatement selectStmt = conn.prepareStatement(selectSql);
              PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
 
@@ -217,14 +366,9 @@ public class DerbyRW implements DatabaseRW {
             selectStmt.setString(1, id);
             try (ResultSet rs = selectStmt.executeQuery()) {
                 if (rs.next()) {
-                    System.out.println("Before Update:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
-                    System.out.println("Image: " + rs.getString("image"));
+                    logRecord("Before Update", rs);
                 } else {
-                    System.out.println("Product not found: " + id);
+                    log.warn("Product not found: %s", id);
                     return; // Exit if product doesn't exist
                 }
             }
@@ -237,30 +381,27 @@ public class DerbyRW implements DatabaseRW {
             updateStmt.setString(5, id);
             updateStmt.executeUpdate();
 
-            // Print After Update
-            try (ResultSet rs = selectStmt.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("After Update:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
-                    System.out.println("image: " + rs.getString("image"));
+            // Print After Update, re-reading the row is only worth it when debugging
+            if (log.isDebugEnabled()) {
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    if (rs.next()) {
+                        logRecord("After Update", rs);
+                    }
                 }
             }
         }
         finally {
-            lock.unlock(); // Always release the lock after the operation
+            productLocks.unlock(lockedStripe); // Always release the lock after the operation
         }
     }
 
 //warehouse delete an existing product
     public void deleteProduct(String proId) throws SQLException {
-        lock.lock();
+        int[] lockedStripe = productLocks.lockProduct(proId);
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String deleteSql = "DELETE FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
              PreparedStatement selectStmt = conn.prepareStatement(selectSql);
              PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
             conn.setAutoCommit(true); // Set auto-commit to true immediately
@@ -269,13 +410,9 @@ public class DerbyRW implements DatabaseRW {
             selectStmt.setString(1, proId);
             try (ResultSet rs = selectStmt.executeQuery()) {
                 if (rs.next()) {
-                    System.out.println("Before delete:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
+                    logRecord("Before delete", rs);
                 } else {
-                    System.out.println("Product not found: " + proId);
+                    log.warn("Product not found: %s", proId);
                     return; // Exit if product does not exist
                 }
             }
@@ -283,11 +420,11 @@ public class DerbyRW implements DatabaseRW {
             // delete from database
             deleteStmt.setString(1, proId);
             deleteStmt.executeUpdate();
-            System.out.println("Product " + proId + " deleted from database.");
+            log.info("Product %s deleted from database.", proId);
         }
 
         finally {
-            lock.unlock(); // Always release the lock after the operation
+            productLocks.unlock(lockedStripe); // Always release the lock after the operation
         }
     }
 
@@ -296,7 +433,7 @@ public class DerbyRW implements DatabaseRW {
     public boolean isProIdAvailable(String proId) throws SQLException {
         String query = "SELECT COUNT(*) FROM ProductTable WHERE productID = ?";
                              //the count of records that match the given proId.
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, proId);
             ResultSet rs = stmt.executeQuery();
@@ -315,10 +452,10 @@ public class DerbyRW implements DatabaseRW {
     //   /images/0001TV.jpg
     //warehouse adds a new product to database
     public void insertNewProduct(String id, String des,double price,String image,int stock) throws SQLException {
-        lock.lock();
+        int[] lockedStripe = productLocks.lockProduct(id);
         String insertSql = "INSERT INTO ProductTable VALUES(?, ?, ?, ?, ?)";
         String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
-        try (Connection conn = DriverManager.getConnection(dbURL);
+        try (Connection conn = connectionPool.getConnection();
         PreparedStatement insertStmt = conn.prepareStatement(insertSql);
         PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
             conn.setAutoCommit(true); // Set auto-commit to true immediately
@@ -329,17 +466,26 @@ public class DerbyRW implements DatabaseRW {
             insertStmt.setInt(5, stock);
             selectStmt.setString(1, id);
             insertStmt.executeUpdate();
-            ResultSet rs = selectStmt.executeQuery();
-            if (rs.next()) { //print the inserted record
-                System.out.println("Insert successful for Product ID: \" + id");
-                System.out.println("ID: " + rs.getString("productID"));
-                System.out.println("Description: " + rs.getString("description"));
-                System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                System.out.println("Stock: " + rs.getInt("inStock"));
+            log.info("Insert successful for Product ID: %s", id);
+            if (log.isDebugEnabled()) { //print the inserted record
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    if (rs.next()) {
+                        logRecord("Inserted", rs);
+                    }
+                }
             }
         }
         finally {
-            lock.unlock(); // Always release the lock after the operation
+            productLocks.unlock(lockedStripe); // Always release the lock after the operation
+        }
+    }
+
+    //debug output of one ProductTable row
+    private void logRecord(String title, ResultSet rs) throws SQLException {
+        if (log.isDebugEnabled()) {
+            log.debug("%s: ID: %s, Description: %s, Unit Price: %.2f, Stock: %d, Image: %s", title,
+                    rs.getString("productID"), rs.getString("description"), rs.getDouble("unitPrice"),
+                    rs.getInt("inStock"), rs.getString("image"));
         }
     }
 
@@ -0,0 +1,187 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * DirectoryOrderStore is the original order storage: one text file per order (eg. orders/ordered/12.txt),
+ * moved to the folder of its new state whenever the state changes. The file work is done by OrderFileManager.
+ *
+ * At start-up with an OrderIndexSnapshot, a state folder that has not been modified since the snapshot
+ * (no order file was added to it or moved out of it) is not listed: its orders are taken from the snapshot.
+ * Only folders changed after the snapshot are listed and reconciled with it.
+ *
+ * With an OrderArchiver, old collected order files are packed into daily archives in the background;
+ * readOrder() still finds them there.
+ */
+
+public class DirectoryOrderStore implements OrderStore {
+    private static final AppLogger log = AppLogger.getLogger(DirectoryOrderStore.class);
+
+    private final Path orderedPath;
+    private final Path progressingPath;
+    private final Path collectedPath;
+    private final OrderArchiver archiver; // null if collected orders are not archived
+
+    public DirectoryOrderStore(Path orderedPath, Path progressingPath, Path collectedPath) {
+        this(orderedPath, progressingPath, collectedPath, null);
+    }
+
+    public DirectoryOrderStore(Path orderedPath, Path progressingPath, Path collectedPath, OrderArchiver archiver) {
+        this.orderedPath = orderedPath;
+        this.progressingPath = progressingPath;
+        this.collectedPath = collectedPath;
+        this.archiver = archiver;
+    }
+
+    @Override
+    public void createOrder(Order order) throws IOException {
+        //write order details to file for the orderId in orderedPath (ie. orders/ordered)
+        OrderFileManager.createOrderFile(orderedPath, order.getOrderId(), order.orderDetails());
+    }
+
+    //change orderState in order file and move the file to new state folder
+    @Override
+    public boolean changeState(int orderId, OrderState newState) throws IOException {
+        switch (newState) {
+            case Progressing:
+                return OrderFileManager.updateAndMoveOrderFile(orderId, newState, orderedPath, progressingPath);
+            case Collected:
+                return OrderFileManager.updateAndMoveOrderFile(orderId, newState, progressingPath, collectedPath);
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String readOrder(int orderId) throws IOException {
+        for (Path dir : new Path[]{progressingPath, orderedPath, collectedPath}) {
+            if (Files.exists(dir.resolve(orderId + ".txt"))) {
+                try {
+                    return OrderFileManager.readOrderFile(dir, orderId);
+                } catch (IOException e) {
+                    if (archiver == null || !archiver.contains(orderId)) throw e;
+                    break; // archived while it was being read
+                }
+            }
+        }
+        if (archiver != null && archiver.contains(orderId)) {
+            return archiver.readOrder(orderId);
+        }
+        throw new IOException("Order file not found: " + orderId);
+    }
+
+    // Lists the three state folders and the archive, then reads each order after afterOrderId with readOrder,
+    // which also finds an order moved or archived since the listing.
+    @Override
+    public void forEachOrder(int afterOrderId, Consumer<StoredOrder> consumer) {
+        IntStream listed = IntStream.empty();
+        for (Path dir : new Path[]{orderedPath, progressingPath, collectedPath}) {
+            listed = IntStream.concat(listed, orderIdsLoader(dir).stream().mapToInt(Integer::intValue));
+        }
+        if (archiver != null) {
+            listed = IntStream.concat(listed, archiver.archivedOrderIds().stream().mapToInt(Integer::intValue));
+        }
+        int[] orderIds = listed.filter(id -> id > afterOrderId).sorted().distinct().toArray();
+        for (int orderId : orderIds) {
+            try {
+                consumer.accept(StoredOrder.fromText(readOrder(orderId)));
+            } catch (IOException e) {
+                log.warn("Order %d cannot be read, %s", orderId, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (archiver != null) {
+            archiver.stop();
+        }
+    }
+
+    @Override
+    public TreeMap<Integer, OrderState> loadActiveOrders() {
+        TreeMap<Integer, OrderState> activeOrders = new TreeMap<>();
+        for (Integer orderId : orderIdsLoader(orderedPath)) {
+            activeOrders.put(orderId, OrderState.Ordered);
+        }
+        for (Integer orderId : orderIdsLoader(progressingPath)) {
+            activeOrders.put(orderId, OrderState.Progressing);
+        }
+        return activeOrders;
+    }
+
+    @Override
+    public TreeMap<Integer, OrderState> loadActiveOrders(OrderIndexSnapshot snapshot) {
+        TreeMap<Integer, OrderState> activeOrders = new TreeMap<>();
+        activeOrders.putAll(reconcile(orderedPath, OrderState.Ordered, snapshot));
+        activeOrders.putAll(reconcile(progressingPath, OrderState.Progressing, snapshot));
+        return activeOrders;
+    }
+
+    // The orders in one state folder: from the snapshot if the folder is unchanged, otherwise from a listing.
+    private TreeMap<Integer, OrderState> reconcile(Path dir, OrderState state, OrderIndexSnapshot snapshot) {
+        TreeMap<Integer, OrderState> known = snapshot.ordersIn(state);
+        try {
+            if (snapshot.covers(Files.getLastModifiedTime(dir))) {
+                log.info("%s unchanged since the snapshot, %d orders", dir, known.size());
+                return known;
+            }
+        } catch (IOException e) {
+            log.warn("%s cannot be checked, %s", dir, e.getMessage());
+        }
+        TreeMap<Integer, OrderState> orders = new TreeMap<>();
+        int added = 0;
+        for (Integer orderId : orderIdsLoader(dir)) {
+            orders.put(orderId, state);
+            if (known.remove(orderId) == null) added++;
+        }
+        log.info("%s changed since the snapshot: %d orders added, %d moved out", dir, added, known.size());
+        return orders;
+    }
+
+    // Loads a list of order IDs from the specified directory.
+    private ArrayList<Integer> orderIdsLoader(Path dir) {
+        ArrayList<Integer> orderIds = new ArrayList<>();
+
+        if (Files.exists(dir) && Files.isDirectory(dir)) {
+            try (Stream<Path> fileStream = Files.list(dir)) {
+                // Process the stream without checking it separately
+                List<Path> files = fileStream.filter(Files::isRegularFile).toList();
+
+                if (files.isEmpty()) {
+                    log.info("%s is empty", dir);
+                } else {
+                    for (Path file : files) {
+                        String fileName = file.getFileName().toString();
+                        if (fileName.endsWith(".txt")) { // Ensure it's a .txt file
+                            try {
+                                int orderId = Integer.parseInt(fileName.substring(0, fileName.lastIndexOf('.')));
+                                orderIds.add(orderId);
+                                log.debug("Order %d found", orderId);
+                            } catch (NumberFormatException e) {
+                                log.warn("Invalid file name: %s", fileName);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error reading %s, %s", dir, e.getMessage());
+            }
+        } else {
+            log.warn("%s does not exist.", dir);
+        }
+        return orderIds;
+    }
+}
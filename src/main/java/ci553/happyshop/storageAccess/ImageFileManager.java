@@ -1,5 +1,7 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.utility.AppLogger;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -18,6 +20,8 @@ import java.nio.file.StandardCopyOption;
  */
 
 public class ImageFileManager {
+    private static final AppLogger log = AppLogger.getLogger(ImageFileManager.class);
+
     /**
      * Deletes an image file from the specified folder.
      *
@@ -31,9 +35,9 @@ public class ImageFileManager {
 
         if (Files.exists(iPath)) { // Check if the file exists
             Files.delete(iPath); // Permanently delete the file
-            System.out.println("Deleted: " + iPath);
+            log.info("Deleted: %s", iPath);
         } else {
-            System.out.println("File not found: " + iPath);
+            log.warn("File not found: %s", iPath);
         }
     }
 
@@ -62,7 +66,7 @@ public class ImageFileManager {
 
         // Copy the file to the destination folder with the specified name
         Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-        System.out.println("File copied successfully to: " + destinationPath);
+        log.info("File copied successfully to: %s", destinationPath);
         return fileNameWithExtension;
     }
 
@@ -0,0 +1,616 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * JournalOrderStore keeps all orders in an append-only journal of order events instead of one file per order.
+ *
+ * <p>Layout:
+ * - The journal is a series of segment files in one folder: segment-00000001.log, segment-00000002.log, ...
+ * - Each segment starts with the 4-byte magic "HSJ1" followed by records:
+ *   <pre>
+ *   int length | int crc32 | byte type | int orderId | long epochMillis | payload
+ *   </pre>
+ *   length and crc32 cover everything after the crc (type .. payload).
+ *   Types are CREATED (payload = the order details text, UTF-8), PROGRESSING and COLLECTED (no payload).
+ * - When a segment would grow beyond segmentMaxBytes, a new segment is started (rollover).
+ *   Records are never changed or moved once written.</p>
+ *
+ * <p>Group commit:
+ * Callers do not write to the file themselves. They queue the record and wait; one writer thread takes
+ * everything queued so far, writes it with one gathering write, calls fsync (FileChannel.force) once,
+ * and then releases all waiting callers. Under load many orders share one fsync, yet no caller returns
+ * before its record is on disk.
+ * If the write or the fsync fails, the batch is cut off the segment again (truncated back to where it started)
+ * and its callers get the exception, so a torn record never sits in front of later records.
+ * If even that fails, the store refuses all further writes until it is reopened.</p>
+ *
+ * <p>Reads:
+ * The index keeps the segment, offset and length of every order's CREATED record.
+ * Segments are memory-mapped (read-only) on first use and stay mapped, so reading an order's details
+ * is a slice of the mapped segment: no file open, no read call and no intermediate copy.
+ * The segment being appended to is re-mapped only when a record beyond the current mapping is read.</p>
+ *
+ * <p>Replay:
+ * On start-up every segment is read in order, checking each record's length and CRC, to rebuild the
+ * in-memory index (orderId → state, timestamps and the position of its CREATED record).
+ * A record cut short by a crash at the end of the last segment is cut off (the file is truncated there),
+ * since the caller of that write never got a success.</p>
+ */
+
+public class JournalOrderStore implements OrderStore {
+    private static final AppLogger log = AppLogger.getLogger(JournalOrderStore.class);
+
+    private static final byte[] MAGIC = {'H', 'S', 'J', '1'};
+    private static final int RECORD_HEADER = 8;              // length + crc
+    private static final int RECORD_FIXED_BODY = 1 + 4 + 8; // type + orderId + epochMillis
+    private static final int MAX_RECORD_BODY = 16 * 1024 * 1024;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final byte CREATED = 1;
+    private static final byte PROGRESSING = 2;
+    private static final byte COLLECTED = 3;
+
+    private final Path journalDir;
+    private final long segmentMaxBytes;
+
+    // index rebuilt by replay and kept up to date by every append
+    private final ConcurrentHashMap<Integer, OrderEntry> orders = new ConcurrentHashMap<>();
+    // segments mapped for reading, by segment number
+    private final ConcurrentHashMap<Integer, MappedSegment> mappedSegments = new ConcurrentHashMap<>();
+
+    // state of the segment being appended to, only used by the writer thread (and by replay before it starts)
+    private int segmentNo;
+    private FileChannel segment;
+    private long segmentSize;
+
+    public static long appendTimeoutMillis = 30_000; // longest wait of a caller for its record to be durable
+
+    // queued by close(): the writer finishes everything before it and stops, without being interrupted
+    private static final PendingAppend STOP = new PendingAppend(ByteBuffer.allocate(0), new CompletableFuture<>());
+
+    private final LinkedBlockingQueue<PendingAppend> appendQueue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed = false;
+    private volatile IOException failure;   // set when a failed batch could not be rolled back
+
+    /**
+     * Opens the journal in journalDir (creating it if needed) and replays it.
+     * @param segmentMaxBytes size at which a new segment is started
+     */
+    public JournalOrderStore(Path journalDir, long segmentMaxBytes) throws IOException {
+        this.journalDir = journalDir;
+        this.segmentMaxBytes = segmentMaxBytes;
+        Files.createDirectories(journalDir);
+        replay();
+        if (segment == null) {
+            openSegment(segmentNo + 1);
+        }
+        writer = new Thread(this::writeLoop, "order-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void createOrder(Order order) throws IOException {
+        int orderId = order.getOrderId();
+        if (orders.containsKey(orderId)) {
+            log.warn("Order %d already exists in the journal", orderId);
+            return;
+        }
+        byte[] detail = order.orderDetails().getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        RecordLocation location = append(encode(CREATED, orderId, now, detail));
+        orders.put(orderId, new OrderEntry(location.segmentNo, location.offset,
+                RECORD_FIXED_BODY + detail.length, OrderState.Ordered));
+    }
+
+    @Override
+    public boolean changeState(int orderId, OrderState newState) throws IOException {
+        OrderEntry entry = orders.get(orderId);
+        if (entry == null || newState == OrderState.Ordered) {
+            log.warn("Order %d not found in the journal", orderId);
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        append(encode(newState == OrderState.Progressing ? PROGRESSING : COLLECTED, orderId, now, new byte[0]));
+        entry.apply(newState, now);
+        return true;
+    }
+
+    @Override
+    public String readOrder(int orderId) throws IOException {
+        OrderEntry entry = orders.get(orderId);
+        if (entry == null) {
+            throw new IOException("Order not found in journal: " + orderId);
+        }
+        String detail = StandardCharsets.UTF_8.decode(readDetailBuffer(entry)).toString();
+        return withCurrentState(detail, entry);
+    }
+
+    /**
+     * Returns the order details as stored when the order was created (state Ordered, no later timestamps),
+     * as a read-only slice of the mapped journal segment. Nothing is copied.
+     * @throws IOException if the order is unknown or its segment cannot be mapped
+     */
+    public ByteBuffer readOrderBuffer(int orderId) throws IOException {
+        OrderEntry entry = orders.get(orderId);
+        if (entry == null) {
+            throw new IOException("Order not found in journal: " + orderId);
+        }
+        return readDetailBuffer(entry);
+    }
+
+    // The payload of the CREATED record, sliced out of the mapped segment.
+    private ByteBuffer readDetailBuffer(OrderEntry entry) throws IOException {
+        long end = entry.offset + RECORD_HEADER + entry.length;
+        MappedSegment mapped;
+        try {
+            mapped = mappedSegments.computeIfAbsent(entry.segmentNo, number -> {
+                try {
+                    return new MappedSegment(FileChannel.open(segmentPath(number), StandardOpenOption.READ));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        MappedByteBuffer buffer = mapped.mappingCovering(end);
+        return buffer.slice((int) entry.offset + RECORD_HEADER + RECORD_FIXED_BODY, entry.length - RECORD_FIXED_BODY)
+                .asReadOnlyBuffer();
+    }
+
+    @Override
+    public TreeMap<Integer, OrderState> loadActiveOrders() {
+        TreeMap<Integer, OrderState> activeOrders = new TreeMap<>();
+        for (Map.Entry<Integer, OrderEntry> e : orders.entrySet()) {
+            OrderState state = e.getValue().state;
+            if (state != OrderState.Collected) {
+                activeOrders.put(e.getKey(), state);
+            }
+        }
+        return activeOrders;
+    }
+
+    // Every order known from the replay: the CREATED record gives the time and products, the index the state.
+    @Override
+    public void forEachOrder(int afterOrderId, Consumer<StoredOrder> consumer) {
+        int[] orderIds = orders.keySet().stream().mapToInt(Integer::intValue).filter(id -> id > afterOrderId)
+                .sorted().toArray();
+        for (int orderId : orderIds) {
+            OrderEntry entry = orders.get(orderId);
+            try {
+                StoredOrder created = StoredOrder.fromText(StandardCharsets.UTF_8.decode(readDetailBuffer(entry)).toString());
+                consumer.accept(new StoredOrder(orderId, created.orderedMillis(), entry.state, created.productIds()));
+            } catch (IOException ex) {
+                log.warn("Order %d cannot be read from the journal, %s", orderId, ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        appendQueue.add(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued(); // queued after STOP, or left behind by a writer that did not stop in time
+        synchronized (this) {
+            if (segment != null && segment.isOpen()) {
+                segment.force(false);
+                segment.close();
+            }
+        }
+        for (MappedSegment mapped : mappedSegments.values()) {
+            mapped.channel.close(); // the mapping itself is released by the garbage collector
+        }
+        mappedSegments.clear();
+    }
+
+    //------------------------------------------------------------------ appending
+
+    // Queues a record for the writer thread and waits until it is durable.
+    private RecordLocation append(ByteBuffer record) throws IOException {
+        if (closed) {
+            throw new IOException("Order journal is closed");
+        }
+        if (failure != null) {
+            throw new IOException("Order journal is unusable after a failed write, reopen it to recover", failure);
+        }
+        PendingAppend pending = new PendingAppend(record, new CompletableFuture<>());
+        appendQueue.add(pending);
+        if (closed && appendQueue.remove(pending)) {
+            throw new IOException("Order journal is closed"); // closed in between, nobody would complete it
+        }
+        try {
+            return pending.done.get(appendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the order journal");
+        } catch (TimeoutException e) {
+            throw new IOException("Order journal write not confirmed within " + appendTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+    }
+
+    // Fails the appends still queued once the writer has stopped.
+    private void failQueued() {
+        ArrayList<PendingAppend> left = new ArrayList<>();
+        appendQueue.drainTo(left);
+        for (PendingAppend pending : left) {
+            pending.done.completeExceptionally(new IOException("Order journal is closed"));
+        }
+    }
+
+    // The writer thread: one gathering write and one fsync for everything queued since the last round.
+    private void writeLoop() {
+        ArrayList<PendingAppend> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(appendQueue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            appendQueue.drainTo(batch);
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                stopping = true;
+                for (PendingAppend late : batch.subList(stop + 1, batch.size())) {
+                    late.done.completeExceptionally(new IOException("Order journal is closed"));
+                }
+                batch.subList(stop, batch.size()).clear(); // write what came before the stop, then exit
+                if (batch.isEmpty()) break;
+            }
+            try {
+                if (failure != null) {
+                    throw new IOException("Order journal is unusable after a failed write", failure);
+                }
+                synchronized (this) {
+                    writeBatch(batch);
+                }
+                log.debug("Group commit of %d order events", batch.size());
+            } catch (IOException | RuntimeException e) {
+                log.error(e, "Order journal write failed");
+                for (PendingAppend pending : batch) {
+                    pending.done.completeExceptionally(e); // no effect on the records already released
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    // Writes and fsyncs one batch; on failure the part of it in the current segment is cut off again.
+    private void writeBatch(List<PendingAppend> batch) throws IOException {
+        ArrayList<ByteBuffer> buffers = new ArrayList<>();
+        ArrayList<RecordLocation> locations = new ArrayList<>();
+        long batchStart = segmentSize; // where the records of this batch begin in the current segment
+        int released = 0;              // records already durable and handed back to their callers
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                int size = batch.get(i).record.remaining();
+                if (segmentSize + size > segmentMaxBytes && segmentSize > MAGIC.length) {
+                    flushBuffers(buffers); // rollover: finish the current segment first
+                    segment.force(false);
+                    for (; released < i; released++) {
+                        batch.get(released).done.complete(locations.get(released));
+                    }
+                    rollOver();
+                    batchStart = segmentSize;
+                }
+                locations.add(new RecordLocation(segmentNo, segmentSize));
+                buffers.add(batch.get(i).record);
+                segmentSize += size;
+            }
+            flushBuffers(buffers);
+            segment.force(false); // one fsync for the whole batch
+        } catch (IOException | RuntimeException e) {
+            if (failure == null) {
+                rollBack(batchStart);
+            }
+            throw e;
+        }
+        for (int i = released; i < batch.size(); i++) {
+            batch.get(i).done.complete(locations.get(i));
+        }
+    }
+
+    // Starts the next segment; if that fails the store cannot tell where to write, so it stops accepting writes.
+    private void rollOver() throws IOException {
+        try {
+            segment.close();
+            openSegment(segmentNo + 1);
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException io ? io : new IOException(e);
+            throw e;
+        }
+    }
+
+    // Cuts the segment back to where the failed batch started, so the next batch starts on a record boundary.
+    private void rollBack(long batchStart) {
+        try {
+            segment.truncate(batchStart);
+            segment.position(batchStart);
+            segmentSize = batchStart;
+            log.warn("Order journal segment %d rolled back to offset %d after a failed write", segmentNo, batchStart);
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException io ? io : new IOException(e);
+            log.error(e, "Order journal segment %d could not be rolled back, no more orders are accepted", segmentNo);
+        }
+    }
+
+    private void flushBuffers(List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer b : array) remaining += b.remaining();
+        while (remaining > 0) {
+            remaining -= segment.write(array);
+        }
+        buffers.clear();
+    }
+
+    private void openSegment(int number) throws IOException {
+        segmentNo = number;
+        segment = openChannel(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment.write(ByteBuffer.wrap(MAGIC));
+        segmentSize = MAGIC.length;
+        log.info("Order journal segment %d started", number);
+    }
+
+    private static ByteBuffer encode(byte type, int orderId, long epochMillis, byte[] payload) {
+        int bodyLength = RECORD_FIXED_BODY + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0); // crc, filled in below
+        buffer.put(type).putInt(orderId).putLong(epochMillis).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    //------------------------------------------------------------------ replay
+
+    private void replay() throws IOException {
+        List<Integer> segmentNumbers = listSegments();
+        int records = 0;
+        for (int i = 0; i < segmentNumbers.size(); i++) {
+            int number = segmentNumbers.get(i);
+            boolean last = i == segmentNumbers.size() - 1;
+            records += replaySegment(number, last);
+            segmentNo = number;
+        }
+        log.info("Order journal replayed: %d segments, %d events, %d orders",
+                segmentNumbers.size(), records, orders.size());
+    }
+
+    // Applies the records of one segment; the last segment is reopened for appending.
+    private int replaySegment(int number, boolean last) throws IOException {
+        Path path = segmentPath(number);
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            readFully(channel, data, 0);
+            data.flip();
+
+            long validEnd = MAGIC.length;
+            if (data.remaining() < MAGIC.length || !hasMagic(data)) {
+                validEnd = 0; // not even a header: an empty segment left by a crash during rollover
+            } else {
+                data.position(MAGIC.length);
+                CRC32 crc = new CRC32();
+                while (data.remaining() >= RECORD_HEADER) {
+                    int start = data.position();
+                    int length = data.getInt();
+                    int expectedCrc = data.getInt();
+                    if (length < RECORD_FIXED_BODY || length > MAX_RECORD_BODY || length > data.remaining()) break;
+                    crc.reset();
+                    crc.update(data.array(), data.position(), length);
+                    if ((int) crc.getValue() != expectedCrc) break;
+
+                    byte type = data.get();
+                    int orderId = data.getInt();
+                    long epochMillis = data.getLong();
+                    data.position(start + RECORD_HEADER + length);
+                    applyRecord(type, orderId, epochMillis, number, start, length);
+                    records++;
+                    validEnd = data.position();
+                }
+            }
+
+            if (validEnd < data.limit()) {
+                if (!last) {
+                    log.error("Order journal segment %d is damaged at offset %d, the rest of it is ignored", number, validEnd);
+                } else {
+                    log.warn("Order journal segment %d ends with an incomplete record at offset %d, cut off",
+                            number, validEnd);
+                }
+            }
+            if (last) {
+                if (validEnd == 0) { // rewrite the header
+                    Files.delete(path);
+                    openSegment(number);
+                } else {
+                    segment = openChannel(path, StandardOpenOption.WRITE);
+                    segment.truncate(validEnd);
+                    segment.position(validEnd);
+                    segmentNo = number;
+                    segmentSize = validEnd;
+                }
+            }
+        }
+        return records;
+    }
+
+    private void applyRecord(byte type, int orderId, long epochMillis, int segmentNumber, long offset, int length) {
+        switch (type) {
+            case CREATED -> orders.put(orderId, new OrderEntry(segmentNumber, offset, length, OrderState.Ordered));
+            case PROGRESSING -> {
+                OrderEntry entry = orders.get(orderId);
+                if (entry != null) entry.apply(OrderState.Progressing, epochMillis);
+            }
+            case COLLECTED -> {
+                OrderEntry entry = orders.get(orderId);
+                if (entry != null) entry.apply(OrderState.Collected, epochMillis);
+            }
+            default -> log.warn("Unknown order journal record type %d for order %d", type, orderId);
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        ArrayList<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("segment-") && name.endsWith(".log")) {
+                    try {
+                        numbers.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid journal file name: %s", name);
+                    }
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private static boolean hasMagic(ByteBuffer data) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.get(i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    //------------------------------------------------------------------ helpers
+
+    // Opens a segment for appending; tests override it to inject write failures.
+    FileChannel openChannel(Path path, OpenOption... options) throws IOException {
+        return FileChannel.open(path, options);
+    }
+
+    private Path segmentPath(int number) {
+        return journalDir.resolve(String.format("segment-%08d.log", number));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new IOException("Unexpected end of order journal segment");
+        }
+    }
+
+    // The stored text was written when the order was created; bring its state and timestamps up to date.
+    private static String withCurrentState(String detail, OrderEntry entry) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : detail.split("\n", -1)) {
+            if (line.startsWith("State")) {
+                line = "State: " + entry.state;
+            } else if (line.startsWith("ProgressingDateTime") && entry.progressingMillis != 0) {
+                line = "ProgressingDateTime: " + formatTime(entry.progressingMillis);
+            } else if (line.startsWith("CollectedDateTime") && entry.collectedMillis != 0) {
+                line = "CollectedDateTime: " + formatTime(entry.collectedMillis);
+            }
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    private static String formatTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
+    // What the index knows about one order.
+    private static final class OrderEntry {
+        final int segmentNo;  // where the CREATED record is
+        final long offset;
+        final int length;     // record body length (type .. payload)
+        volatile OrderState state;
+        volatile long progressingMillis;
+        volatile long collectedMillis;
+
+        OrderEntry(int segmentNo, long offset, int length, OrderState state) {
+            this.segmentNo = segmentNo;
+            this.offset = offset;
+            this.length = length;
+            this.state = state;
+        }
+
+        void apply(OrderState newState, long epochMillis) {
+            if (newState == OrderState.Progressing) progressingMillis = epochMillis;
+            if (newState == OrderState.Collected) collectedMillis = epochMillis;
+            state = newState;
+        }
+    }
+
+    // A segment opened once for reading, and its current read-only mapping.
+    private static final class MappedSegment {
+        final FileChannel channel;
+        volatile MappedByteBuffer buffer;
+
+        MappedSegment(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // Returns a mapping that includes the first 'end' bytes, re-mapping the (growing) file if needed.
+        MappedByteBuffer mappingCovering(long end) throws IOException {
+            MappedByteBuffer current = buffer;
+            if (current != null && current.capacity() >= end) {
+                return current;
+            }
+            synchronized (this) {
+                if (buffer == null || buffer.capacity() < end) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                if (buffer.capacity() < end) {
+                    throw new IOException("Order journal record beyond the end of its segment");
+                }
+                return buffer;
+            }
+        }
+    }
+
+    private record RecordLocation(int segmentNo, long offset) {}
+
+    private record PendingAppend(ByteBuffer record, CompletableFuture<RecordLocation> done) {}
+}
@@ -0,0 +1,256 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OrderArchiver moves old collected order files out of orders/collected into daily compressed archives,
+ * so the collected folder only holds recent orders.
+ *
+ * <p>Archive layout, one pair of files per day in orders/archive (the day the order file was last written,
+ * ie. the day it was collected):
+ * - collected-2025-03-11.gz: every order of the day compressed as its own gzip member, one after another.
+ *   Concatenated gzip members are still one valid gzip file, so {@code zcat} shows all the orders of the day.
+ * - collected-2025-03-11.idx: the sidecar index, one fixed-size record per order:
+ *   int orderId, long offset of its gzip member in the .gz file, int length of the member (big-endian).</p>
+ *
+ * <p>All the .idx files are read at start-up into a map orderId → (archive, offset, length).
+ * readOrder() then reads and decompresses only the one member of the order, never the whole archive.</p>
+ *
+ * <p>Archiving a batch: the members are appended to the .gz file and forced to disk, then their records
+ * are appended to the .idx file and forced, and only then are the order files deleted.
+ * After a crash, bytes in the .gz file beyond the last indexed member are cut off before the next append,
+ * and order files that were archived but not yet deleted are only deleted.</p>
+ */
+
+public class OrderArchiver {
+    private static final AppLogger log = AppLogger.getLogger(OrderArchiver.class);
+
+    public static long archiveAfterMillis = 24 * 60 * 60 * 1000L; // collected orders older than this are archived
+    public static long archiveIntervalMillis = 60 * 60 * 1000L;   // how often the collected folder is checked
+
+    private static final String PREFIX = "collected-";
+    private static final int RECORD_SIZE = 4 + 8 + 4;
+
+    // Where an archived order is: its archive file and the position of its gzip member.
+    private record Location(Path archive, long offset, int length) {}
+
+    private final Path collectedPath;
+    private final Path archivePath;
+    private final ConcurrentHashMap<Integer, Location> index = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public OrderArchiver(Path collectedPath, Path archivePath) throws IOException {
+        this.collectedPath = collectedPath;
+        this.archivePath = archivePath;
+        Files.createDirectories(archivePath);
+        loadIndex();
+    }
+
+    // Starts archiving in the background, every archiveIntervalMillis.
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-archiver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    archiveOlderThan(System.currentTimeMillis() - archiveAfterMillis);
+                } catch (IOException | RuntimeException e) {
+                    log.error(e, "Archiving collected orders failed");
+                }
+            }, 0, archiveIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    public boolean contains(int orderId) {
+        return index.containsKey(orderId);
+    }
+
+    // The IDs of all archived orders, in ascending order.
+    public List<Integer> archivedOrderIds() {
+        List<Integer> orderIds = new ArrayList<>(index.keySet());
+        orderIds.sort(null);
+        return orderIds;
+    }
+
+    public int archivedCount() {
+        return index.size();
+    }
+
+    /**
+     * Reads an archived order in the same text form as OrderFileManager.readOrderFile.
+     * Only the gzip member of this order is read and decompressed.
+     * @throws IOException if the order is not archived or cannot be read
+     */
+    public String readOrder(int orderId) throws IOException {
+        Location location = index.get(orderId);
+        if (location == null) {
+            throw new IOException("Order not archived: " + orderId);
+        }
+        ByteBuffer member = ByteBuffer.allocate(location.length());
+        try (FileChannel channel = FileChannel.open(location.archive(), StandardOpenOption.READ)) {
+            while (member.hasRemaining()) {
+                if (channel.read(member, location.offset() + member.position()) < 0) {
+                    throw new IOException("Archive " + location.archive() + " is truncated at order " + orderId);
+                }
+            }
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(member.array()))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return content.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    /**
+     * Archives the collected order files last written before the given time, grouped by day.
+     * @return the number of orders archived
+     */
+    public synchronized int archiveOlderThan(long beforeMillis) throws IOException {
+        // day → (orderId → order file), sorted so every archive grows in orderId order
+        TreeMap<LocalDate, TreeMap<Integer, Path>> byDay = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(collectedPath, "*.txt")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int orderId;
+                try {
+                    orderId = Integer.parseInt(name.substring(0, name.length() - ".txt".length()));
+                } catch (NumberFormatException e) {
+                    continue; // eg. a temp file of OrderFileManager
+                }
+                long modified = Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+                if (modified < beforeMillis) {
+                    LocalDate day = Instant.ofEpochMilli(modified).atZone(ZoneId.systemDefault()).toLocalDate();
+                    byDay.computeIfAbsent(day, d -> new TreeMap<>()).put(orderId, file);
+                }
+            }
+        }
+        int archived = 0;
+        for (Map.Entry<LocalDate, TreeMap<Integer, Path>> day : byDay.entrySet()) {
+            archived += archiveDay(day.getKey(), day.getValue());
+        }
+        if (archived > 0) {
+            log.info("%d collected orders archived in %s", archived, archivePath);
+        }
+        return archived;
+    }
+
+    // Appends the orders to the archive of the day, then deletes their files.
+    private int archiveDay(LocalDate day, TreeMap<Integer, Path> orders) throws IOException {
+        Path archive = archivePath.resolve(PREFIX + day + ".gz");
+        Path indexFile = archivePath.resolve(PREFIX + day + ".idx");
+        List<Path> done = new ArrayList<>();
+        Map<Integer, Location> added = new TreeMap<>();
+
+        try (FileChannel data = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileChannel records = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long end = indexedEnd(archive);
+            data.truncate(end); // drop members written before a crash but never indexed
+            records.truncate(records.size() - records.size() % RECORD_SIZE);
+
+            ByteBuffer recordBuffer = ByteBuffer.allocate(orders.size() * RECORD_SIZE);
+            for (Map.Entry<Integer, Path> order : orders.entrySet()) {
+                done.add(order.getValue());
+                if (index.containsKey(order.getKey())) {
+                    continue; // archived before a crash, only the file was left
+                }
+                byte[] member = gzip(Files.readAllBytes(order.getValue()));
+                ByteBuffer buffer = ByteBuffer.wrap(member);
+                while (buffer.hasRemaining()) {
+                    data.write(buffer, end + buffer.position());
+                }
+                added.put(order.getKey(), new Location(archive, end, member.length));
+                recordBuffer.putInt(order.getKey()).putLong(end).putInt(member.length);
+                end += member.length;
+            }
+            data.force(true);
+            recordBuffer.flip();
+            long recordsEnd = records.size();
+            while (recordBuffer.hasRemaining()) {
+                recordsEnd += records.write(recordBuffer, recordsEnd);
+            }
+            records.force(true);
+        }
+        index.putAll(added);
+        for (Path file : done) {
+            Files.deleteIfExists(file);
+        }
+        return added.size();
+    }
+
+    // The end of the last member of an archive that is in the index, ie. where the next member goes.
+    private long indexedEnd(Path archive) {
+        long end = 0;
+        for (Location location : index.values()) {
+            if (location.archive().equals(archive)) {
+                end = Math.max(end, location.offset() + location.length());
+            }
+        }
+        return end;
+    }
+
+    // Reads every .idx file of the archive folder into the in-memory index.
+    private void loadIndex() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archivePath, PREFIX + "*.idx")) {
+            for (Path indexFile : files) {
+                String name = indexFile.getFileName().toString();
+                Path archive = archivePath.resolve(name.substring(0, name.length() - ".idx".length()) + ".gz");
+                long archiveSize = Files.exists(archive) ? Files.size(archive) : 0;
+                ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+                while (records.remaining() >= RECORD_SIZE) {
+                    int orderId = records.getInt();
+                    long offset = records.getLong();
+                    int length = records.getInt();
+                    if (offset + length <= archiveSize) {
+                        index.put(orderId, new Location(archive, offset, length));
+                    } else {
+                        log.warn("%s points beyond the end of %s (order %d)", indexFile, archive, orderId);
+                    }
+                }
+            }
+        }
+        log.info("%d archived orders indexed in %s", index.size(), archivePath);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+}
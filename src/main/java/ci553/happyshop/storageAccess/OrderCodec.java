@@ -0,0 +1,211 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+/**
+ * OrderCodec converts an Order to and from a compact binary record, used by BinaryOrderStore.
+ *
+ * <p>Record layout (big-endian):
+ * <pre>
+ *   offset  0  int    magic "HSO1"
+ *   offset  4  int    orderId
+ *   offset  8  byte   state (OrderState ordinal)
+ *   offset  9  long   orderedMillis      (epoch millis, 0 = not set)
+ *   offset 17  long   progressingMillis
+ *   offset 25  long   collectedMillis
+ *   offset 33  varint number of items, then for each item:
+ *              varint length + productId (UTF-8)
+ *              varint length + description (UTF-8)
+ *              double unitPrice
+ *              varint orderedQuantity
+ * </pre>
+ * The header has a fixed width, so the state and the timestamps can be changed by overwriting a few bytes
+ * at known offsets without decoding the items. A varint stores 7 bits per byte, so small numbers and
+ * short strings take a single length byte.</p>
+ *
+ * <p>Nothing is formatted as text when an order is written. The text form of Order.orderDetails()
+ * is only built when it is asked for, by {@link #toText(ByteBuffer)}.</p>
+ */
+
+public class OrderCodec {
+    public static final int MAGIC = 0x48534F31; // "HSO1"
+
+    public static final int OFFSET_ORDER_ID = 4;
+    public static final int OFFSET_STATE = 8;
+    public static final int OFFSET_ORDERED_MILLIS = 9;
+    public static final int OFFSET_PROGRESSING_MILLIS = 17;
+    public static final int OFFSET_COLLECTED_MILLIS = 25;
+    public static final int HEADER_SIZE = 33;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final OrderState[] STATES = OrderState.values();
+
+    // Encodes the order as a binary record.
+    public static byte[] encode(Order order) {
+        ArrayList<Product> products = order.getProductList();
+        byte[][] ids = new byte[products.size()][];
+        byte[][] descriptions = new byte[products.size()][];
+        int size = HEADER_SIZE + varintSize(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            ids[i] = p.getProductId().getBytes(StandardCharsets.UTF_8);
+            descriptions[i] = p.getProductDescription().getBytes(StandardCharsets.UTF_8);
+            size += varintSize(ids[i].length) + ids[i].length
+                    + varintSize(descriptions[i].length) + descriptions[i].length
+                    + Double.BYTES + varintSize(p.getOrderedQuantity());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(order.getOrderId());
+        buffer.put((byte) order.getState().ordinal());
+        long orderedMillis = order.getOrderedMillis(); // 0 only for an order made from its text form
+        buffer.putLong(orderedMillis != 0 ? orderedMillis : toEpochMillis(order.getOrderedDateTime()));
+        buffer.putLong(toEpochMillis(order.getProgressingDateTime()));
+        buffer.putLong(toEpochMillis(order.getCollectedDateTime()));
+        putVarint(buffer, products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            putVarint(buffer, ids[i].length);
+            buffer.put(ids[i]);
+            putVarint(buffer, descriptions[i].length);
+            buffer.put(descriptions[i]);
+            buffer.putDouble(p.getUnitPrice());
+            putVarint(buffer, p.getOrderedQuantity());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a record, starting at the buffer's position (which is left unchanged).
+     * @throws IOException if the record is not a valid order record
+     */
+    public static Order decode(ByteBuffer record) throws IOException {
+        ByteBuffer buffer = record.duplicate();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an order record");
+            }
+            int orderId = buffer.getInt();
+            OrderState state = toState(orderId, buffer.get());
+            long ordered = buffer.getLong();
+            String progressing = formatMillis(buffer.getLong());
+            String collected = formatMillis(buffer.getLong());
+
+            int itemCount = getVarint(buffer);
+            ArrayList<Product> products = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                String productId = getString(buffer);
+                String description = getString(buffer);
+                double unitPrice = buffer.getDouble();
+                Product product = new Product(productId, description, productId + ".jpg", unitPrice, 0);
+                product.setOrderedQuantity(getVarint(buffer));
+                products.add(product);
+            }
+            return new Order(orderId, state, ordered, progressing, collected, products);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Order record is truncated", e);
+        }
+    }
+
+    // Renders a binary record in the text form of Order.orderDetails().
+    public static String toText(ByteBuffer record) throws IOException {
+        return decode(record).orderDetails();
+    }
+
+    // Reads the orderId and state from the fixed header, without decoding the items.
+    public static int orderId(ByteBuffer record) {
+        return record.getInt(record.position() + OFFSET_ORDER_ID);
+    }
+
+    /**
+     * Reads the state from the fixed header.
+     * @throws IOException if the state byte is not an OrderState ordinal
+     */
+    public static OrderState state(ByteBuffer record) throws IOException {
+        return toState(orderId(record), record.get(record.position() + OFFSET_STATE));
+    }
+
+    private static OrderState toState(int orderId, int state) throws IOException {
+        if (state < 0 || state >= STATES.length) {
+            throw new IOException("Invalid state in order record " + orderId + ": " + state);
+        }
+        return STATES[state];
+    }
+
+    // Offset in the header of the timestamp set when an order enters the given state.
+    public static int timestampOffset(OrderState state) {
+        switch (state) {
+            case Progressing:
+                return OFFSET_PROGRESSING_MILLIS;
+            case Collected:
+                return OFFSET_COLLECTED_MILLIS;
+            case Ordered:
+            default:
+                return OFFSET_ORDERED_MILLIS;
+        }
+    }
+
+    // "yyyy-MM-dd HH:mm:ss" (local time) to epoch millis; empty or null is 0.
+    static long toEpochMillis(String dateTime) {
+        if (dateTime == null || dateTime.isBlank()) return 0;
+        return LocalDateTime.parse(dateTime.trim(), TIME_FORMAT)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Epoch millis to "yyyy-MM-dd HH:mm:ss" (local time); 0 is an empty string.
+    static String formatMillis(long epochMillis) {
+        if (epochMillis == 0) return "";
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = getVarint(buffer);
+        if (length > buffer.remaining()) {
+            throw new IOException("Order record is truncated");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Unsigned LEB128: 7 bits per byte, low bits first, high bit set on every byte but the last.
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Invalid varint in order record");
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package ci553.happyshop.storageAccess;
 
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -43,6 +44,7 @@ import java.time.format.DateTimeFormatter;
  */
 
 public class OrderFileManager {
+    private static final AppLogger log = AppLogger.getLogger(OrderFileManager.class);
 
     //Creates a new order file in the specified directory with the given content.
     public static void createOrderFile(Path dir, int orderId, String orderDetail) throws IOException {
@@ -53,11 +55,11 @@ public class OrderFileManager {
             try (BufferedWriter writer = Files.newBufferedWriter(path)) {
                 writer.write(orderDetail);
                 writer.newLine();
-                System.out.println(path + " created");
+                log.debug("%s created", path);
             }
         }
         else{
-            System.out.println(path + " already exists");
+            log.warn("%s already exists", path);
         }
     }
 
@@ -76,7 +78,7 @@ public class OrderFileManager {
             return true;
         }
         else{
-            System.out.println(sourcePath + " not found in ");
+            log.warn("%s not found", sourcePath);
             return false;
         }
     }
@@ -112,7 +114,7 @@ public class OrderFileManager {
         try {
             Files.move(tempFilePath, sourcePath, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
-            System.err.println("Move failed: " + e.getMessage());
+            log.error("Move failed: %s", e.getMessage());
             Files.deleteIfExists(tempFilePath); // Delete temp file ONLY IF move failed and it still exists
         }
     }
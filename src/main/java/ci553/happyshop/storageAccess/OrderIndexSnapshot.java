@@ -0,0 +1,177 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * OrderIndexSnapshot is a compact copy of OrderHub's index of active orders (orderId → state, last-change time),
+ * written periodically to orders/orderIndex.snapshot so start-up does not have to scan every order.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ *   int    magic "HSX1"
+ *   byte   length + storage layout name (UTF-8), eg. DIRECTORIES
+ *   long   writtenMillis, the time the index was copied
+ *   int    number of orders, then for each order:
+ *          int orderId, byte state (OrderState ordinal), long lastChangeMillis
+ *   long   CRC32 of everything above
+ * </pre>
+ * The file is written to a temporary file and renamed, so a crash leaves either the old or the new snapshot.
+ * A snapshot that is missing, fails its checksum or was written for another storage layout is not used:
+ * read() returns null and OrderHub falls back to a full scan.</p>
+ *
+ * <p>The snapshot only describes the orders as they were at writtenMillis. The OrderStore reconciles
+ * whatever changed after that (see OrderStore.loadActiveOrders(OrderIndexSnapshot)).</p>
+ */
+
+public class OrderIndexSnapshot {
+    private static final AppLogger log = AppLogger.getLogger(OrderIndexSnapshot.class);
+
+    private static final int MAGIC = ('H' << 24) | ('S' << 16) | ('X' << 8) | '1';
+    private static final int ENTRY_SIZE = 4 + 1 + 8;
+
+    // The state of one order and when it last changed.
+    public record Entry(OrderState state, long lastChangeMillis) {}
+
+    private final long writtenMillis;
+    private final TreeMap<Integer, Entry> entries;
+
+    private OrderIndexSnapshot(long writtenMillis, TreeMap<Integer, Entry> entries) {
+        this.writtenMillis = writtenMillis;
+        this.entries = entries;
+    }
+
+    public long getWrittenMillis() {
+        return writtenMillis;
+    }
+
+    // orderId → state and last-change time, sorted by orderId
+    public TreeMap<Integer, Entry> getEntries() {
+        return entries;
+    }
+
+    // The orderIds the snapshot has in the given state.
+    public TreeMap<Integer, OrderState> ordersIn(OrderState state) {
+        TreeMap<Integer, OrderState> orders = new TreeMap<>();
+        entries.forEach((orderId, entry) -> {
+            if (entry.state() == state) orders.put(orderId, state);
+        });
+        return orders;
+    }
+
+    /**
+     * Tells whether a file or folder last modified at the given time is fully described by the snapshot.
+     * The time is compared to the start of the second the snapshot was written in, so file systems that keep
+     * modification times in whole seconds cannot hide a change made just after the snapshot.
+     */
+    public boolean covers(FileTime lastModified) {
+        return lastModified.toMillis() < writtenMillis - Math.floorMod(writtenMillis, 1000L);
+    }
+
+    /**
+     * Writes a snapshot of the index, replacing the previous one.
+     * @param writtenMillis the time the index was copied; later changes must not be in entries
+     */
+    public static void write(Path file, OrderStorageLayout layout, long writtenMillis,
+                             Map<Integer, Entry> entries) throws IOException {
+        byte[] layoutName = layout.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + layoutName.length + 8 + 4 + entries.size() * ENTRY_SIZE + 8);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) layoutName.length).put(layoutName);
+        buffer.putLong(writtenMillis);
+        buffer.putInt(entries.size());
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            buffer.putInt(entry.getKey());
+            buffer.put((byte) entry.getValue().state().ordinal());
+            buffer.putLong(entry.getValue().lastChangeMillis());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot written for the given storage layout.
+     * @return the snapshot, or null if there is none or it cannot be trusted
+     */
+    public static OrderIndexSnapshot read(Path file, OrderStorageLayout layout) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            log.info("No order index snapshot at %s", file);
+            return null;
+        } catch (IOException e) {
+            log.warn("Order index snapshot %s cannot be read: %s", file, e.getMessage());
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < 4 + 8 || buffer.getInt() != MAGIC) {
+                log.warn("%s is not an order index snapshot", file);
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            if (crc.getValue() != buffer.getLong(bytes.length - 8)) {
+                log.warn("Order index snapshot %s is corrupt (checksum mismatch)", file);
+                return null;
+            }
+            byte[] layoutName = new byte[buffer.get() & 0xFF];
+            buffer.get(layoutName);
+            String writtenFor = new String(layoutName, StandardCharsets.UTF_8);
+            if (!writtenFor.equals(layout.name())) {
+                log.info("Order index snapshot %s was written for %s orders, not %s", file, writtenFor, layout);
+                return null;
+            }
+            long writtenMillis = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > (bytes.length - buffer.position() - 8) / ENTRY_SIZE) {
+                log.warn("Order index snapshot %s is corrupt (bad order count %d)", file, count);
+                return null;
+            }
+            OrderState[] states = OrderState.values();
+            TreeMap<Integer, Entry> entries = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                int orderId = buffer.getInt();
+                int state = buffer.get();
+                long lastChangeMillis = buffer.getLong();
+                if (state < 0 || state >= states.length) {
+                    log.warn("Order index snapshot %s is corrupt (bad state of order %d)", file, orderId);
+                    return null;
+                }
+                entries.put(orderId, new Entry(states[state], lastChangeMillis));
+            }
+            return new OrderIndexSnapshot(writtenMillis, entries);
+        } catch (BufferUnderflowException e) {
+            log.warn("Order index snapshot %s is truncated", file);
+            return null;
+        }
+    }
+}
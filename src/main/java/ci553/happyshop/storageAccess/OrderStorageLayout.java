@@ -0,0 +1,21 @@
+package ci553.happyshop.storageAccess;
+
+/**
+ * Selects how orders are stored on disk (see OrderStore).
+ *
+ * - DIRECTORIES: the original layout, one text file per order in orders/ordered, orders/progressing
+ *   and orders/collected. Every state change rewrites the file through a temp copy and moves it.
+ *   Old collected orders are packed into daily archives in orders/archive (OrderArchiver).
+ * - JOURNAL: an append-only, segmented journal of order events in orders/journal (JournalOrderStore).
+ *   A state change is one small appended record, and concurrent writes share one fsync.
+ * - BINARY: one compact binary file per order (OrderCodec) in orders/binary (BinaryOrderStore).
+ *   A state change overwrites a few header bytes in place; files are never moved.
+ *
+ * The layout is chosen in StorageLocation.orderStorageLayout.
+ */
+
+public enum OrderStorageLayout {
+    DIRECTORIES,
+    JOURNAL,
+    BINARY
+}
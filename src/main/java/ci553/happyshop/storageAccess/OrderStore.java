@@ -0,0 +1,109 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * The OrderStore interface defines how OrderHub persists orders.
+ * It plays the same role for orders that DatabaseRW plays for products.
+ *
+ * Implementations:
+ * - DirectoryOrderStore: the original layout, one text file per order, moved between
+ *   the orders/ordered, orders/progressing and orders/collected folders as its state changes.
+ * - JournalOrderStore: an append-only, segmented journal of order events in orders/journal.
+ * - BinaryOrderStore: one compact binary file per order (see OrderCodec) in orders/binary.
+ *
+ * The implementation is selected by StorageLocation.orderStorageLayout and created by OrderStoreFactory.
+ */
+
+public interface OrderStore {
+
+    /**
+     * Stores a new order (in the Ordered state).
+     * When the method returns, the order is durable.
+     */
+    void createOrder(Order order) throws IOException;
+
+    /**
+     * Records that an order moved to a new state (Progressing or Collected), with the current time.
+     * @return false if the order is unknown to the store
+     */
+    boolean changeState(int orderId, OrderState newState) throws IOException;
+
+    /**
+     * Reads the details of an order in the same text form as Order.orderDetails(),
+     * with the state and timestamps brought up to date.
+     * @throws IOException if the order is unknown or cannot be read
+     */
+    String readOrder(int orderId) throws IOException;
+
+    /**
+     * Loads every order that has not been collected yet, used by OrderHub at start-up.
+     * @return orderId → state (Ordered or Progressing), sorted by orderId
+     */
+    TreeMap<Integer, OrderState> loadActiveOrders() throws IOException;
+
+    /**
+     * Loads every order that has not been collected yet, starting from a snapshot of OrderHub's index
+     * and reading only what changed in storage after the snapshot was written.
+     * Stores that cannot tell what changed load everything, ie. the default.
+     * @return orderId → state (Ordered or Progressing), sorted by orderId
+     */
+    default TreeMap<Integer, OrderState> loadActiveOrders(OrderIndexSnapshot snapshot) throws IOException {
+        return loadActiveOrders();
+    }
+
+    /**
+     * Passes every stored order with an orderId above afterOrderId (0 for all) to the consumer, in any state
+     * and including archived ones, in orderId order. Only the orderIds are collected up front; each order
+     * is read as it is passed on. Used by OrderHub at start-up to bring its OrderQueryIndex up to date.
+     * Orders that cannot be read are logged and skipped.
+     */
+    void forEachOrder(int afterOrderId, Consumer<StoredOrder> consumer) throws IOException;
+
+    // A stored order as OrderHub's query index sees it: when it was placed, its state and its productIDs.
+    record StoredOrder(int orderId, long orderedMillis, OrderState state, List<String> productIds) {
+
+        // Reads a stored order from the text form of Order.orderDetails().
+        static StoredOrder fromText(String details) throws IOException {
+            Integer orderId = null;
+            OrderState state = null;
+            long orderedMillis = 0;
+            List<String> productIds = new ArrayList<>();
+            boolean items = false;
+            try {
+                for (String line : details.split("\n")) {
+                    if (items) {
+                        String item = line.trim();
+                        if (item.startsWith("-")) break; // the line above the total
+                        if (!item.isEmpty()) productIds.add(item.split("\\s+", 2)[0]);
+                    } else if (line.startsWith("Order ID:")) {
+                        orderId = Integer.parseInt(line.substring("Order ID:".length()).trim());
+                    } else if (line.startsWith("State:")) {
+                        state = OrderState.valueOf(line.substring("State:".length()).trim());
+                    } else if (line.startsWith("OrderedDateTime:")) {
+                        orderedMillis = OrderCodec.toEpochMillis(line.substring("OrderedDateTime:".length()));
+                    } else if (line.startsWith("Items:")) {
+                        items = true;
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid order details: " + e.getMessage(), e);
+            }
+            if (orderId == null || state == null) {
+                throw new IOException("Order details without an order ID or state");
+            }
+            return new StoredOrder(orderId, orderedMillis, state, productIds);
+        }
+    }
+
+    // Releases files and threads held by the store.
+    default void close() throws IOException {
+    }
+}
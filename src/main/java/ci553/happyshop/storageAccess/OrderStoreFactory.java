@@ -0,0 +1,43 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.StorageLocation;
+
+import java.io.IOException;
+
+/**
+ * The OrderStoreFactory creates the single OrderStore used by OrderHub,
+ * following the layout selected in StorageLocation.orderStorageLayout.
+ *
+ * Example Usage:
+ *     OrderStore store = OrderStoreFactory.getOrderStore();
+ */
+
+public class OrderStoreFactory {
+
+    public static long journalSegmentMaxBytes = 4 * 1024 * 1024; // a new journal segment is started at this size
+
+    private static OrderStore orderStore; // shared, there must be only one writer of the order files
+
+    // Returns the shared OrderStore, creating it (and replaying the journal, if used) on first use.
+    public static synchronized OrderStore getOrderStore() throws IOException {
+        if (orderStore == null) {
+            orderStore = createOrderStore(StorageLocation.orderStorageLayout);
+        }
+        return orderStore;
+    }
+
+    private static OrderStore createOrderStore(OrderStorageLayout layout) throws IOException {
+        switch (layout) {
+            case JOURNAL:
+                return new JournalOrderStore(StorageLocation.journalPath, journalSegmentMaxBytes);
+            case BINARY:
+                return new BinaryOrderStore(StorageLocation.binaryOrdersPath);
+            case DIRECTORIES:
+            default:
+                OrderArchiver archiver = new OrderArchiver(StorageLocation.collectedPath, StorageLocation.archivePath);
+                archiver.start(); // packs old collected orders into daily archives in the background
+                return new DirectoryOrderStore(StorageLocation.orderedPath,
+                        StorageLocation.progressingPath, StorageLocation.collectedPath, archiver);
+        }
+    }
+}
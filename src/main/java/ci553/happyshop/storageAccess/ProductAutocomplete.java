@@ -0,0 +1,85 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ProductAutocomplete suggests search terms while the customer is still typing.
+ *
+ * <p>It is a sorted-array prefix index: every product ID and every description word is a term,
+ * stored once in a sorted String array together with a weight (how many products contain the word;
+ * product IDs get a fixed high weight so an exact ID prefix is suggested first).
+ * All terms starting with a prefix sit next to each other in the array, so a lookup is
+ * one binary search plus a short scan, keeping the best {@code limit} terms by weight.</p>
+ *
+ * <p>Instances are immutable, so lookups need no locking. When the catalogue changes, a new
+ * ProductAutocomplete is built and swapped in (see CachingDatabaseRW).</p>
+ */
+
+public class ProductAutocomplete {
+    private static final int PRODUCT_ID_WEIGHT = 1_000_000;
+
+    private final String[] terms;   // sorted ascending
+    private final int[] weights;    // weights[i] belongs to terms[i]
+
+    public ProductAutocomplete(Iterable<Product> products) {
+        HashMap<String, Integer> termWeights = new HashMap<>();
+        for (Product p : products) {
+            termWeights.put(p.getProductId().toLowerCase(), PRODUCT_ID_WEIGHT);
+            for (String token : new HashSet<>(ProductSearchIndex.tokenize(p.getProductDescription()))) {
+                termWeights.merge(token, 1, Integer::sum);
+            }
+        }
+
+        terms = termWeights.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        weights = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            weights[i] = termWeights.get(terms[i]);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} terms starting with the prefix (case-insensitive),
+     * highest weight first, then alphabetically.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        ArrayList<String> result = new ArrayList<>();
+        if (prefix == null || limit <= 0) return result;
+        String p = prefix.trim().toLowerCase();
+        if (p.isEmpty()) return result;
+
+        int from = Arrays.binarySearch(terms, p);
+        if (from < 0) from = -from - 1; // insertion point = first term >= prefix
+
+        // min-heap of the best candidates seen so far, worst on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (a, b) -> compare(b, a));
+        for (int i = from; i < terms.length && terms[i].startsWith(p); i++) {
+            best.offer(i);
+            if (best.size() > limit) best.poll();
+        }
+
+        Integer[] picked = best.toArray(new Integer[0]);
+        Arrays.sort(picked, this::compare);
+        for (Integer i : picked) {
+            result.add(terms[i]);
+        }
+        return result;
+    }
+
+    // orders term indexes best first: higher weight, then alphabetical
+    private int compare(int a, int b) {
+        int byWeight = Integer.compare(weights[b], weights[a]);
+        return byWeight != 0 ? byWeight : terms[a].compareTo(terms[b]);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+}
@@ -0,0 +1,94 @@
+package ci553.happyshop.storageAccess;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ProductLockManager provides per-product locking for stock changes, shared by every DatabaseRW instance.
+ *
+ * <p>Instead of one lock for the whole database, it keeps a fixed array of locks (stripes).
+ * A productID is mapped to one stripe by its hash, so:
+ * - Checkouts on products in different stripes run in parallel.
+ * - Checkouts sharing a product (or a stripe) are serialized.
+ * - Memory stays fixed no matter how large the catalogue grows.</p>
+ *
+ * <p>Deadlock freedom: a checkout needs several products at once. All locks are taken in ascending
+ * stripe order (and released in reverse), so two checkouts can never each hold a lock the other waits for.
+ * Ordering by stripe rather than by productID is what matters, because two different IDs can share a stripe.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ *     int[] stripes = lockManager.lockProducts(productIds);
+ *     try { ... } finally { lockManager.unlock(stripes); }
+ * </pre></p>
+ */
+
+public class ProductLockManager {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripeCount the number of locks, rounded up to a power of two
+     */
+    public ProductLockManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    // Maps a productID to its stripe, spreading the hash so similar IDs (0001, 0002...) land on different stripes.
+    private int stripeOf(String productId) {
+        int h = productId.trim().hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    /**
+     * Locks every stripe needed for the given products, in ascending stripe order.
+     * @return the locked stripes, to be passed to {@link #unlock(int[])}
+     */
+    public int[] lockProducts(Collection<String> productIds) {
+        int[] needed = new int[productIds.size()];
+        int n = 0;
+        for (String id : productIds) {
+            needed[n++] = stripeOf(id);
+        }
+        Arrays.sort(needed);
+
+        // remove duplicates, a stripe is locked only once
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || needed[distinct - 1] != needed[i]) {
+                needed[distinct++] = needed[i];
+            }
+        }
+        int[] locked = Arrays.copyOf(needed, distinct);
+        for (int stripe : locked) {
+            stripes[stripe].lock();
+        }
+        return locked;
+    }
+
+    /**
+     * Locks the stripe of a single product.
+     * @return the locked stripe, to be passed to {@link #unlock(int[])}
+     */
+    public int[] lockProduct(String productId) {
+        int stripe = stripeOf(productId);
+        stripes[stripe].lock();
+        return new int[]{stripe};
+    }
+
+    // Releases stripes returned by lockProducts()/lockProduct(), in reverse order.
+    public void unlock(int[] lockedStripes) {
+        for (int i = lockedStripes.length - 1; i >= 0; i--) {
+            stripes[lockedStripes[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ProductSearchIndex is an in-memory inverted index over product descriptions.
+ * It replaces the {@code LOWER(description) LIKE '%kw%'} table scan for description searches.
+ *
+ * <p>Structure:
+ * - Each description is split into lower-case tokens (letters and digits), eg "40 inch TV" → 40, inch, tv.
+ * - The index maps every token to its postings: a TreeMap of productID → how often the token occurs,
+ *   so postings are kept sorted by productID.
+ * - The tokens of each product are remembered, so a product can be removed or re-indexed incrementally.</p>
+ *
+ * <p>Queries:
+ * - A query is tokenized the same way; all query words must match (AND).
+ * - A query word matches an index token exactly, or as a prefix (so "tele" still finds "television").
+ * - Results are ranked by a TF-IDF score: rare words count more than common ones,
+ *   exact matches count more than prefix matches, and shorter descriptions win ties.
+ *   Equal scores are ordered by productID.
+ * - For paged lists, page() returns the matches in productID order instead, starting after a cursor.</p>
+ *
+ * <p>The index is safe for concurrent use: many searches may run at once, updates take a write lock.</p>
+ */
+
+public class ProductSearchIndex {
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+
+    private final TreeMap<String, TreeMap<String, Integer>> postings = new TreeMap<>(); // token → (productID → frequency)
+    private final HashMap<String, List<String>> productTokens = new HashMap<>(); // productID → its tokens
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    // Splits text into lower-case tokens made of letters and digits.
+    public static List<String> tokenize(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            } else if (sb.length() > 0) {
+                tokens.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) tokens.add(sb.toString());
+        return tokens;
+    }
+
+    /**
+     * Tells whether a description matches every query word by the rule of this index: each query word
+     * equals a token of the description or is a prefix of one. Used by DerbyRW to return the same products
+     * as the index when the search falls back to SQL.
+     */
+    public static boolean matchesAllWords(String description, List<String> queryTokens) {
+        List<String> tokens = tokenize(description);
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    // Builds the index from scratch, eg. from the whole ProductTable at start-up.
+    public void rebuild(Iterable<Product> products) {
+        rwLock.writeLock().lock();
+        try {
+            postings.clear();
+            productTokens.clear();
+            for (Product p : products) {
+                addLocked(p.getProductId(), p.getProductDescription());
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    // Adds or re-indexes one product after an insert or update.
+    public void put(Product product) {
+        rwLock.writeLock().lock();
+        try {
+            removeLocked(product.getProductId());
+            addLocked(product.getProductId(), product.getProductDescription());
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    // Removes one product after a delete.
+    public void remove(String productId) {
+        rwLock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(String productId, String description) {
+        List<String> tokens = tokenize(description);
+        productTokens.put(productId, tokens);
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new TreeMap<>()).merge(productId, 1, Integer::sum);
+        }
+    }
+
+    private void removeLocked(String productId) {
+        List<String> tokens = productTokens.remove(productId);
+        if (tokens == null) return;
+        for (String token : tokens) {
+            TreeMap<String, Integer> list = postings.get(token);
+            if (list != null) {
+                list.remove(productId);
+                if (list.isEmpty()) postings.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Finds the products whose description contains every word of the query.
+     * @return matching productIDs, best match first; empty if the query has no words or nothing matches
+     */
+    public List<String> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) return new ArrayList<>();
+
+        rwLock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String queryToken : queryTokens) {
+                Map<String, Double> tokenScores = scoreToken(queryToken);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else { // AND: keep only products matched by every query word
+                    Map<String, Double> merged = new HashMap<>();
+                    for (Map.Entry<String, Double> e : scores.entrySet()) {
+                        Double s = tokenScores.get(e.getKey());
+                        if (s != null) merged.put(e.getKey(), e.getValue() + s);
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) return new ArrayList<>();
+            }
+
+            ArrayList<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+            for (Map.Entry<String, Double> e : ranked) { // shorter descriptions rank higher on equal matches
+                e.setValue(e.getValue() / Math.sqrt(productTokens.get(e.getKey()).size()));
+            }
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+            });
+
+            ArrayList<String> result = new ArrayList<>(ranked.size());
+            for (Map.Entry<String, Double> e : ranked) {
+                result.add(e.getKey());
+            }
+            return result;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of the products whose description contains every word of the query, in productID order.
+     * The postings are walked from the cursor with TreeMap.higherKey(), so only about one page of postings
+     * is visited, however many products match in total.
+     *
+     * @param afterProductId only IDs greater than this are returned, or null for the first page
+     * @return up to limit productIDs in ascending order
+     */
+    public List<String> page(String query, String afterProductId, int limit) {
+        List<String> queryTokens = tokenize(query);
+        ArrayList<String> result = new ArrayList<>();
+        if (queryTokens.isEmpty() || limit <= 0) return result;
+
+        rwLock.readLock().lock();
+        try {
+            // for every query word, the postings of all index tokens it matches (exactly or as a prefix)
+            ArrayList<List<TreeMap<String, Integer>>> matchesPerWord = new ArrayList<>();
+            for (String queryToken : queryTokens) {
+                List<TreeMap<String, Integer>> matches = new ArrayList<>(
+                        postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false).values());
+                if (matches.isEmpty()) return result; // AND: one word matches nothing
+                matchesPerWord.add(matches);
+            }
+
+            // walk the candidates of the first word in productID order, keep those matching every other word
+            List<TreeMap<String, Integer>> driver = matchesPerWord.get(0);
+            String cursor = afterProductId == null ? "" : afterProductId;
+            while (result.size() < limit) {
+                String next = null;
+                for (TreeMap<String, Integer> list : driver) {
+                    String key = list.higherKey(cursor);
+                    if (key != null && (next == null || key.compareTo(next) < 0)) next = key;
+                }
+                if (next == null) break;
+                if (matchesAll(next, matchesPerWord)) result.add(next);
+                cursor = next;
+            }
+            return result;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    private static boolean matchesAll(String productId, List<List<TreeMap<String, Integer>>> matchesPerWord) {
+        for (int i = 1; i < matchesPerWord.size(); i++) {
+            boolean found = false;
+            for (TreeMap<String, Integer> list : matchesPerWord.get(i)) {
+                if (list.containsKey(productId)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    // Scores every product matching one query word, exactly or as a prefix of an index token.
+    private Map<String, Double> scoreToken(String queryToken) {
+        HashMap<String, Double> scores = new HashMap<>();
+        int productCount = Math.max(1, productTokens.size());
+        NavigableMap<String, TreeMap<String, Integer>> matches =
+                postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false);
+        for (Map.Entry<String, TreeMap<String, Integer>> tokenEntry : matches.entrySet()) {
+            TreeMap<String, Integer> list = tokenEntry.getValue();
+            double idf = Math.log(1 + (double) productCount / list.size());
+            double weight = tokenEntry.getKey().equals(queryToken) ? 1.0 : PREFIX_MATCH_WEIGHT;
+            for (Map.Entry<String, Integer> posting : list.entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * idf * weight, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    public int size() {
+        rwLock.readLock().lock();
+        try {
+            return productTokens.size();
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+}
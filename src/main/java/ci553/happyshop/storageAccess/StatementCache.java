@@ -0,0 +1,173 @@
+package ci553.happyshop.storageAccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatementCache keeps the PreparedStatements of one pooled connection, keyed by their SQL text,
+ * so that DerbyRW's fixed set of queries is compiled by Derby once per connection rather than once per call.
+ *
+ * <p>ConnectionPool attaches one cache to every physical connection and routes
+ * {@code conn.prepareStatement(sql)} through {@link #prepare(Connection, String)}.
+ * The caller still closes the statement with try-with-resources as usual; for a cached statement,
+ * close() only closes its open ResultSet and clears its parameters and batch, leaving it ready for reuse.</p>
+ *
+ * <p>Rules:
+ * - A statement already in use (prepared twice before being closed) is not shared:
+ *   the second caller gets an ordinary, uncached statement.
+ * - The cache holds at most {@code maxSize} statements; the least recently used idle one is closed when full.
+ * - A connection is only used by one borrower at a time, so the cache needs no locking.</p>
+ */
+
+public class StatementCache {
+    private final int maxSize;
+    private final LongAdder hits;   // shared counters, owned by the ConnectionPool
+    private final LongAdder misses;
+
+    // access-ordered, so iteration starts from the least recently used statement
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    public StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Returns a ready-to-use PreparedStatement for the SQL text, reusing a cached one when possible.
+     */
+    public PreparedStatement prepare(Connection raw, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            hits.increment();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        misses.increment();
+        if (cached != null || maxSize <= 0) {
+            return raw.prepareStatement(sql); // already in use or caching disabled: plain statement
+        }
+
+        evictIfFull();
+        cached = new CachedStatement(raw.prepareStatement(sql));
+        cached.inUse = true;
+        statements.put(sql, cached);
+        return cached.proxy;
+    }
+
+    // Closes the least recently used statement that is not currently in use.
+    private void evictIfFull() {
+        if (statements.size() < maxSize) return;
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            CachedStatement cs = it.next();
+            if (!cs.inUse) {
+                it.remove();
+                closeQuietly(cs.stmt);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Called when the connection goes back to the pool:
+     * any statement the borrower forgot to close is reset so the next borrower can reuse it.
+     */
+    public void releaseAll() {
+        for (CachedStatement cs : statements.values()) {
+            if (cs.inUse) {
+                cs.release();
+            }
+        }
+    }
+
+    /** Called when the physical connection is discarded. */
+    public void closeAll() {
+        for (CachedStatement cs : statements.values()) {
+            closeQuietly(cs.stmt);
+        }
+        statements.clear();
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception ignored) {
+            // nothing useful to do, the statement is being dropped
+        }
+    }
+
+    /**
+     * A cached physical statement and the proxy handed to callers.
+     * The proxy turns close() into a reset and remembers ResultSets so they can be closed on release.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final PreparedStatement stmt;
+        private final PreparedStatement proxy;
+        private final ArrayList<ResultSet> openResultSets = new ArrayList<>(1);
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement stmt) {
+            this.stmt = stmt;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        void release() {
+            inUse = false;
+            for (ResultSet rs : openResultSets) {
+                closeQuietly(rs);
+            }
+            openResultSets.clear();
+            try {
+                stmt.clearParameters();
+                stmt.clearBatch();
+            } catch (SQLException ignored) {
+                // a broken statement is detected by the next execute on it
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) release();
+                    return null;
+                case "isClosed":
+                    return !inUse || stmt.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                Object result = method.invoke(stmt, args);
+                if (result instanceof ResultSet rs) {
+                    openResultSets.add(rs);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TrigramIndex answers fuzzy (misspelled) description searches from memory, eg "tostr" → Toaster.
+ *
+ * <p>Structure:
+ * - Every description word is split into trigrams, padded with '$' at the start and end,
+ *   eg "tv" → $$t, $tv, tv$.
+ * - The index maps every trigram to the words containing it, and every word to the products using it.</p>
+ *
+ * <p>Queries:
+ * - For each query word, the candidate words are those sharing at least one trigram with it.
+ * - A candidate is accepted when its Jaccard similarity (shared trigrams / all trigrams of both words)
+ *   reaches MIN_SIMILARITY, or when it is within a small edit distance (one edit per 3 letters),
+ *   which catches short words where a single typo breaks most trigrams.
+ * - Like ProductSearchIndex, every query word must match (AND). A product's score is the sum of
+ *   the best similarity for each query word; results are best first, ties by productID.</p>
+ *
+ * <p>It is only used as a fallback when the exact ID and description searches find nothing.
+ * The index is safe for concurrent use: many searches may run at once, updates take a write lock.</p>
+ */
+
+public class TrigramIndex {
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final HashMap<String, HashSet<String>> trigramWords = new HashMap<>(); // trigram → words containing it
+    private final HashMap<String, HashMap<String, Integer>> wordProducts = new HashMap<>(); // word → (productID → count)
+    private final HashMap<String, List<String>> productWords = new HashMap<>(); // productID → its words
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    // Splits one word into padded trigrams, eg "tv" → [$$t, $tv, tv$].
+    static HashSet<String> trigrams(String word) {
+        String padded = "$$" + word + "$";
+        HashSet<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Builds the index from scratch, eg. from the whole ProductTable at start-up.
+    public void rebuild(Iterable<Product> products) {
+        rwLock.writeLock().lock();
+        try {
+            trigramWords.clear();
+            wordProducts.clear();
+            productWords.clear();
+            for (Product p : products) {
+                addLocked(p.getProductId(), p.getProductDescription());
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    // Adds or re-indexes one product after an insert or update.
+    public void put(Product product) {
+        rwLock.writeLock().lock();
+        try {
+            removeLocked(product.getProductId());
+            addLocked(product.getProductId(), product.getProductDescription());
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    // Removes one product after a delete.
+    public void remove(String productId) {
+        rwLock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(String productId, String description) {
+        List<String> words = ProductSearchIndex.tokenize(description);
+        productWords.put(productId, words);
+        for (String word : words) {
+            HashMap<String, Integer> products = wordProducts.get(word);
+            if (products == null) { // a new word, register its trigrams
+                products = new HashMap<>();
+                wordProducts.put(word, products);
+                for (String gram : trigrams(word)) {
+                    trigramWords.computeIfAbsent(gram, g -> new HashSet<>()).add(word);
+                }
+            }
+            products.merge(productId, 1, Integer::sum);
+        }
+    }
+
+    private void removeLocked(String productId) {
+        List<String> words = productWords.remove(productId);
+        if (words == null) return;
+        for (String word : words) {
+            HashMap<String, Integer> products = wordProducts.get(word);
+            if (products == null) continue;
+            products.remove(productId);
+            if (products.isEmpty()) { // no product uses the word any more
+                wordProducts.remove(word);
+                for (String gram : trigrams(word)) {
+                    HashSet<String> gramWords = trigramWords.get(gram);
+                    if (gramWords != null) {
+                        gramWords.remove(word);
+                        if (gramWords.isEmpty()) trigramWords.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the products whose description contains a word similar to every word of the query.
+     * @return matching productIDs, best match first; empty if the query has no words or nothing is similar
+     */
+    public List<String> search(String query) {
+        List<String> queryWords = ProductSearchIndex.tokenize(query);
+        if (queryWords.isEmpty()) return new ArrayList<>();
+
+        rwLock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String queryWord : queryWords) {
+                Map<String, Double> wordScores = scoreWord(queryWord);
+                if (scores == null) {
+                    scores = wordScores;
+                } else { // AND: keep only products matched by every query word
+                    Map<String, Double> merged = new HashMap<>();
+                    for (Map.Entry<String, Double> e : scores.entrySet()) {
+                        Double s = wordScores.get(e.getKey());
+                        if (s != null) merged.put(e.getKey(), e.getValue() + s);
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) return new ArrayList<>();
+            }
+
+            ArrayList<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+            });
+            ArrayList<String> result = new ArrayList<>(ranked.size());
+            for (Map.Entry<String, Double> e : ranked) {
+                result.add(e.getKey());
+            }
+            return result;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    // Scores every product having a word similar to one query word (best similarity per product).
+    private Map<String, Double> scoreWord(String queryWord) {
+        HashSet<String> queryGrams = trigrams(queryWord);
+
+        // count the trigrams each candidate word shares with the query word
+        HashMap<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            HashSet<String> words = trigramWords.get(gram);
+            if (words == null) continue;
+            for (String word : words) {
+                shared.merge(word, 1, Integer::sum);
+            }
+        }
+
+        HashMap<String, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            String word = candidate.getKey();
+            int common = candidate.getValue();
+            double similarity = (double) common / (queryGrams.size() + trigrams(word).size() - common);
+            if (similarity < MIN_SIMILARITY
+                    && editDistance(queryWord, word) > Math.max(1, Math.max(queryWord.length(), word.length()) / 3)) {
+                continue;
+            }
+            for (String productId : wordProducts.get(word).keySet()) {
+                scores.merge(productId, similarity, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    // Levenshtein distance between two (short) words.
+    static int editDistance(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    public int size() {
+        rwLock.readLock().lock();
+        try {
+            return productWords.size();
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ci553.happyshop.systemSetup;
+
+import ci553.happyshop.storageAccess.BinaryOrderStore;
+import ci553.happyshop.storageAccess.OrderCodec;
+import ci553.happyshop.utility.StorageLocation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * This class renders the binary order files (StorageLocation.orderStorageLayout = BINARY)
+ * in the readable text format of Order.orderDetails(), the same text the DIRECTORIES layout stores.
+ *
+ * Usage (run from the project folder):
+ *   ExportOrdersAsText                    prints every order to the console
+ *   ExportOrdersAsText 12 15              prints orders 12 and 15
+ *   ExportOrdersAsText --out export 12    writes export/12.txt instead of printing
+ *
+ * The binary files are only read, never changed.
+ */
+
+public class ExportOrdersAsText {
+    private static Path binaryOrdersPath = StorageLocation.binaryOrdersPath;
+
+    public static void main(String[] args) throws IOException {
+        Path outDir = null;
+        Set<Integer> wanted = new HashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                outDir = Paths.get(args[++i]);
+            } else {
+                wanted.add(Integer.parseInt(args[i]));
+            }
+        }
+
+        TreeMap<Integer, Path> orderFiles = findOrderFiles(binaryOrdersPath);
+        if (outDir != null) {
+            Files.createDirectories(outDir);
+        }
+        int exported = 0;
+        for (var entry : orderFiles.entrySet()) {
+            int orderId = entry.getKey();
+            if (!wanted.isEmpty() && !wanted.contains(orderId)) continue;
+
+            String text = OrderCodec.toText(ByteBuffer.wrap(Files.readAllBytes(entry.getValue())));
+            if (outDir == null) {
+                System.out.println(text);
+            } else {
+                Files.writeString(outDir.resolve(orderId + ".txt"), text);
+            }
+            exported++;
+        }
+        System.out.println(exported + " order(s) exported from " + binaryOrdersPath);
+        for (Integer orderId : wanted) {
+            if (!orderFiles.containsKey(orderId)) {
+                System.out.println("Order " + orderId + " not found");
+            }
+        }
+    }
+
+    // All binary order files under the folder, by orderId.
+    private static TreeMap<Integer, Path> findOrderFiles(Path folder) throws IOException {
+        TreeMap<Integer, Path> orderFiles = new TreeMap<>();
+        if (Files.notExists(folder)) {
+            System.out.println("Folder " + folder + " does not exist");
+            return orderFiles;
+        }
+        try (Stream<Path> paths = Files.walk(folder)) {
+            List<Path> files = paths.filter(p -> p.toString().endsWith(BinaryOrderStore.FILE_EXTENSION)).toList();
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                try {
+                    int orderId = Integer.parseInt(
+                            fileName.substring(0, fileName.length() - BinaryOrderStore.FILE_EXTENSION.length()));
+                    orderFiles.put(orderId, file);
+                } catch (NumberFormatException e) {
+                    System.out.println("Skipped " + file);
+                }
+            }
+        }
+        return orderFiles;
+    }
+}
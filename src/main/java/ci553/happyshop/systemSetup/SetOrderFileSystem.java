@@ -20,6 +20,9 @@ import java.util.concurrent.locks.ReentrantLock;
  * 2. Ensures that all required order-related folders exist:
  *    - The main orders folder (`orders/`)
  *    - Subfolders for each order state: `ordered/`, `progressing/`, and `collected/`
+ *    - The `journal/` subfolder for the order journal (used when StorageLocation.orderStorageLayout is JOURNAL)
+ *    - The `binary/` subfolder for binary order files (used when StorageLocation.orderStorageLayout is BINARY)
+ *    - The `archive/` subfolder for the daily archives of old collected orders
  * 3. Creates the orderCounter.txt file inside the 'orders/' folder if it does not already exist, initializing it to "0".
  *   - The `orderCounter.txt`
  *
@@ -35,7 +38,10 @@ public class SetOrderFileSystem {
             StorageLocation.ordersPath,
             StorageLocation.orderedPath,
             StorageLocation.progressingPath,
-            StorageLocation.collectedPath
+            StorageLocation.collectedPath,
+            StorageLocation.journalPath,
+            StorageLocation.binaryOrdersPath,
+            StorageLocation.archivePath
     };
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,213 @@
+package ci553.happyshop.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AppLogger is a small levelled logger that keeps console output off the hot paths.
+ *
+ * <p>How it works:
+ * - A log call below the current level returns at once, without building the message.
+ * - Otherwise the call only claims a slot in a fixed-size ring buffer (a compare-and-set, no lock)
+ *   and stores the format string and arguments there; the message is NOT formatted yet.
+ * - One background daemon thread formats the queued entries and writes them to the console in batches.
+ *   When it runs out of entries it parks until a producer wakes it, so an idle logger costs nothing.
+ * - If the buffer is full (the console cannot keep up), the entry is dropped and counted,
+ *   so a caller never blocks on logging. The writer reports how many entries were dropped.</p>
+ *
+ * <p>Usage:
+ * <pre>
+ *     private static final AppLogger log = AppLogger.getLogger(DerbyRW.class);
+ *     log.debug("Product %s found, %d in stock", id, stock);   // formatted later, only if DEBUG is on
+ *     if (log.isDebugEnabled()) { ... expensive dump ... }
+ * </pre>
+ * The level is set by {@link #level}, or at start-up by the system property {@code happyshop.log.level}
+ * (eg. {@code -Dhappyshop.log.level=DEBUG}).</p>
+ *
+ * <p>Arguments are formatted on the writer thread, so pass values that are not changed afterwards
+ * (Strings, numbers, or objects the caller no longer modifies).</p>
+ */
+
+public final class AppLogger {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    public static volatile Level level = initialLevel();
+    public static final int BUFFER_SIZE = 8192; // must be a power of two
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    // buffered and only flushed when the writer runs out of entries, so a burst costs few system calls;
+    // wraps System.out (not the file descriptor) so redirected or captured output, eg. in tests, still works
+    private static final PrintStream out =
+            new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+
+    // Ring buffer: producers claim sequence numbers with CAS on head, the writer thread advances tail.
+    private static final Entry[] ring = new Entry[BUFFER_SIZE];
+    private static final int MASK = BUFFER_SIZE - 1;
+    private static final AtomicLong head = new AtomicLong(); // next sequence to claim
+    private static volatile long tail = 0;                   // next sequence to write, only changed by the writer
+    private static final LongAdder dropped = new LongAdder();
+    private static final Thread writer;
+    private static volatile boolean writerIdle = false;      // the writer is parked, or about to park
+
+    static {
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            ring[i] = new Entry(i - BUFFER_SIZE); // not yet published for sequence i
+        }
+        writer = new Thread(AppLogger::writeLoop, "app-logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AppLogger::flush, "app-logger-flush"));
+    }
+
+    private final String name;
+
+    private AppLogger(String name) {
+        this.name = name;
+    }
+
+    public static AppLogger getLogger(Class<?> owner) {
+        return new AppLogger(owner.getSimpleName());
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0;
+    }
+
+    public void debug(String format, Object... args) { log(Level.DEBUG, null, format, args); }
+    public void info(String format, Object... args)  { log(Level.INFO, null, format, args); }
+    public void warn(String format, Object... args)  { log(Level.WARN, null, format, args); }
+    public void error(String format, Object... args) { log(Level.ERROR, null, format, args); }
+
+    // logs the message followed by the stack trace of the throwable
+    public void warn(Throwable thrown, String format, Object... args)  { log(Level.WARN, thrown, format, args); }
+    public void error(Throwable thrown, String format, Object... args) { log(Level.ERROR, thrown, format, args); }
+
+    private void log(Level messageLevel, Throwable thrown, String format, Object[] args) {
+        if (!isEnabled(messageLevel)) return;
+
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= BUFFER_SIZE) { // full: drop rather than block the caller
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        Entry e = ring[(int) (seq & MASK)];
+        e.time = System.currentTimeMillis();
+        e.level = messageLevel;
+        e.logger = name;
+        e.thread = Thread.currentThread().getName();
+        e.format = format;
+        e.args = args;
+        e.thrown = thrown;
+        e.sequence = seq; // volatile write publishes the fields above to the writer
+        if (writerIdle) {
+            LockSupport.unpark(writer); // only when the writer has run out of entries
+        }
+    }
+
+    /**
+     * Waits (up to one second) until every entry logged so far has been written.
+     * Used at shutdown and by tests; normal code never needs to call it.
+     */
+    public static void flush() {
+        long target = head.get();
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (tail < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+        out.flush();
+    }
+
+    private static void writeLoop() {
+        StringBuilder sb = new StringBuilder(256);
+        while (true) {
+            long next = tail;
+            Entry e = ring[(int) (next & MASK)];
+            if (e.sequence != next) { // nothing published yet
+                long lost = dropped.sumThenReset();
+                if (lost > 0) {
+                    out.println(LocalTime.now().format(TIME_FORMAT) + " WARN  [app-logger] " + lost
+                            + " log messages dropped, the buffer was full");
+                }
+                out.flush();
+                // announce the park, then look once more: a producer that published before seeing
+                // writerIdle has its entry found here, one that published after it unparks the writer
+                writerIdle = true;
+                if (e.sequence != next) {
+                    LockSupport.park();
+                }
+                writerIdle = false;
+                continue;
+            }
+
+            sb.setLength(0);
+            sb.append(LocalTime.ofInstant(Instant.ofEpochMilli(e.time), ZoneId.systemDefault()).format(TIME_FORMAT))
+                    .append(' ').append(String.format("%-5s", e.level))
+                    .append(" [").append(e.thread).append("] ")
+                    .append(e.logger).append(" - ")
+                    .append(format(e.format, e.args));
+            out.println(sb);
+            if (e.thrown != null) {
+                e.thrown.printStackTrace(out);
+            }
+
+            e.args = null; // let the arguments be garbage collected
+            e.thrown = null;
+            tail = next + 1; // frees the slot for producers
+        }
+    }
+
+    private static String format(String format, Object[] args) {
+        if (args == null || args.length == 0) return format;
+        try {
+            return String.format(format, args);
+        } catch (RuntimeException ex) { // a bad format string must not kill the writer
+            return format + " " + Arrays.toString(args);
+        }
+    }
+
+    private static Level initialLevel() {
+        String configured = System.getProperty("happyshop.log.level");
+        if (configured != null) {
+            try {
+                return Level.valueOf(configured.trim().toUpperCase());
+            } catch (IllegalArgumentException ignored) {
+                // unknown level, keep the default
+            }
+        }
+        return Level.INFO;
+    }
+
+    // One slot of the ring buffer, reused for every BUFFER_SIZE-th entry.
+    private static final class Entry {
+        volatile long sequence;
+        long time;
+        Level level;
+        String logger;
+        String thread;
+        String format;
+        Object[] args;
+        Throwable thrown;
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ci553.happyshop.utility;
+
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram records non-negative values (eg. milliseconds) in a fixed amount of memory
+ * and answers percentile questions with a bounded relative error, in the style of HdrHistogram.
+ *
+ * <p>How it works:
+ * - Values are counted in buckets whose width grows with the value: the range [2^k, 2^(k+1)) is split into
+ *   the same number of equal sub-buckets, enough to keep significantDigits decimal digits.
+ *   With 2 digits, any value is known to within 1%, whether it is 15 ms or 3 hours.
+ * - Recording is O(1) (a few bit operations and an array increment); memory depends only on
+ *   the highest trackable value and the precision, not on how many values are recorded.
+ * - Values above highestTrackableValue are counted as highestTrackableValue; the exact maximum is kept aside.</p>
+ *
+ * <p>The histogram is not thread-safe; the owner synchronizes access.</p>
+ */
+
+public class LatencyHistogram {
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final long[] counts;
+    private long totalCount = 0;
+    private long maxValue = 0;
+    private long minValue = Long.MAX_VALUE;
+
+    /**
+     * @param highestTrackableValue the largest value told apart from the others, eg. one day in milliseconds
+     * @param significantDigits     decimal digits of precision, 1 to 5
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (highestTrackableValue < 2 || significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Invalid histogram: " + highestTrackableValue + ", " + significantDigits + " digits");
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        long largestSingleUnitValue = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitValue - 1); // ceil(log2)
+        subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+        int subBucketCount = 1 << (subBucketHalfCountMagnitude + 1);
+        subBucketHalfCount = subBucketCount / 2;
+        subBucketMask = subBucketCount - 1;
+        leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+        int bucketCount = 1;
+        long smallestUntrackable = subBucketCount;
+        while (smallestUntrackable <= highestTrackableValue) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        counts = new long[(bucketCount + 1) * subBucketHalfCount];
+    }
+
+    // Records one value; negative values count as 0.
+    public void record(long value) {
+        value = Math.max(0, value);
+        maxValue = Math.max(maxValue, value);
+        minValue = Math.min(minValue, value);
+        counts[countsIndex(Math.min(value, highestTrackableValue))]++;
+        totalCount++;
+    }
+
+    // Adds every value recorded in another histogram of the same shape.
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Histograms of different shapes cannot be added");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+        minValue = Math.min(minValue, other.minValue);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+        minValue = Long.MAX_VALUE;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    // The largest value recorded, exactly; 0 if none.
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    // The smallest value recorded, exactly; 0 if none.
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    /**
+     * The value at the given percentile (0 to 100): at least that share of the recorded values are at or below it.
+     * The answer is the highest value of its bucket, so it is never below the true percentile; 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    // The highest value counted at the index.
+    private long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        long lowest = (long) subBucketIndex << bucketIndex;
+        return lowest + (1L << bucketIndex) - 1;
+    }
+}
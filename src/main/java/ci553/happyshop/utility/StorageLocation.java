@@ -1,5 +1,7 @@
 package ci553.happyshop.utility;
 
+import ci553.happyshop.storageAccess.OrderStorageLayout;
+
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -25,6 +27,26 @@ import java.nio.file.Paths;
  *         Subfolder to store orders in the "Progressing" state (e.g., being prepared by a picker).
  *    - collectedPath:
  *         Subfolder to store orders in the "Collected" state (e.g., customer collected).
+ *    - journalPath:
+ *         Subfolder for the order journal, used instead of the three state folders
+ *         when orderStorageLayout is JOURNAL.
+ *    - binaryOrdersPath:
+ *         Folder for binary order files, used when orderStorageLayout is BINARY.
+ *    - archivePath:
+ *         Subfolder for the daily compressed archives of old collected orders (orders/archive),
+ *         written by OrderArchiver when orderStorageLayout is DIRECTORIES.
+ *    - latencyCsvPath:
+ *         CSV file (orders/latency.csv) where OrderLatencyRecorder appends the p50/p95/p99/max time orders
+ *         spent in each state, per interval; rolled over to latency.csv.1 when it grows too large.
+ *    - orderIndexSnapshotPath:
+ *         A checksummed snapshot of OrderHub's active orders (orders/orderIndex.snapshot), written periodically
+ *         so start-up only has to reconcile what changed after it, see OrderIndexSnapshot.
+ *    - orderQueryIndexPath:
+ *         OrderHub's saved OrderQueryIndex (orders/orderQuery.index), so start-up only reads the orders
+ *         placed after it was saved.
+ *    - orderStorageLayout:
+ *         DIRECTORIES (the state folders above), JOURNAL or BINARY, see OrderStorageLayout.
+ *         Can also be chosen with -Dhappyshop.orderStorage=JOURNAL.
  *
  * 3. Order ID Tracking:
  *    - orderCounterFile / orderCounterPath:
@@ -60,6 +82,16 @@ public class StorageLocation {
     public static final Path orderedPath = ordersPath.resolve("ordered");//orders/ordered to store orders at Ordered state
     public static final Path progressingPath = ordersPath.resolve("progressing");// orders/progressing to store orders at Progressing state
     public static final Path collectedPath = ordersPath.resolve("collected");//orders/collected to store orders at Collected state
+    public static final Path journalPath = ordersPath.resolve("journal");//orders/journal to store the order journal segments
+    public static final Path binaryOrdersPath = ordersPath.resolve("binary");//orders/binary to store binary order files
+    public static final Path archivePath = ordersPath.resolve("archive");//orders/archive to store daily archives of old collected orders
+    public static final Path latencyCsvPath = ordersPath.resolve("latency.csv");//per-interval order state latencies
+    public static final Path orderIndexSnapshotPath = ordersPath.resolve("orderIndex.snapshot");//snapshot of OrderHub's index of active orders
+    public static final Path orderQueryIndexPath = ordersPath.resolve("orderQuery.index");//saved OrderQueryIndex of all orders
+
+    // How orders are stored, change it before the OrderHub is first used
+    public static OrderStorageLayout orderStorageLayout =
+            OrderStorageLayout.valueOf(System.getProperty("happyshop.orderStorage", "DIRECTORIES").trim().toUpperCase());
 
     //OrderCounter File and its Path, ie orders/orderCounter.txt
     public static final String orderCounterFile = "orderCounter.txt";
@@ -0,0 +1,125 @@
+package ci553.happyshop.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TimerWheel is a hierarchical timing wheel: it keeps items until a deadline and returns them
+ * in batches as time moves on, instead of scheduling one task per item.
+ *
+ * <p>Structure:
+ * - Time is cut into ticks of tickMillis. Level 0 is a ring of wheelSize buckets, one per tick.
+ * - Level 1 is a ring of wheelSize buckets of wheelSize ticks each, level 2 of wheelSize² ticks, and so on.
+ * - An item is put in the finest level whose range covers its deadline. Adding is O(1).
+ * - Each tick empties one level-0 bucket: everything in it has expired. When level 0 completes a turn,
+ *   the next level-1 bucket is cascaded: its items are spread over level 0 (and likewise up the levels).
+ * - Deadlines beyond the top level wait in an overflow list and are placed when the top level turns.</p>
+ *
+ * <p>Items expire on the tick that contains their deadline, ie. at most one tick late.
+ * The wheel is not thread-safe; the owner synchronizes access.</p>
+ *
+ * @param <T> the kind of item, eg. an orderId
+ */
+
+public class TimerWheel<T> {
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Entry<T>>[][] levels; // levels[level][bucket]
+    private final long[] levelSpans;         // ticks covered by one bucket of each level
+    private final ArrayList<Entry<T>> overflow = new ArrayList<>();
+    private long currentTick;                // the last tick processed
+    private int size = 0;
+
+    /**
+     * @param tickMillis resolution of the wheel
+     * @param wheelSize  buckets per level
+     * @param levelCount number of levels; together they cover tickMillis * wheelSize^levelCount
+     * @param nowMillis  the current time
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic arrays cannot be created directly
+    public TimerWheel(long tickMillis, int wheelSize, int levelCount, long nowMillis) {
+        if (tickMillis < 1 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timer wheel: " + tickMillis + "ms x " + wheelSize + " x " + levelCount);
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levels = new List[levelCount][wheelSize];
+        this.levelSpans = new long[levelCount];
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            levelSpans[level] = span;
+            for (int bucket = 0; bucket < wheelSize; bucket++) {
+                levels[level][bucket] = new ArrayList<>();
+            }
+            span *= wheelSize;
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // Adds an item that expires at the given time.
+    public void add(T item, long deadlineMillis) {
+        place(new Entry<>(item, Math.max(deadlineMillis / tickMillis, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Moves the wheel forward to nowMillis.
+     * @return the items whose deadline has passed, in deadline order (by tick); empty if none
+     */
+    public List<T> advanceTo(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long nowTick = nowMillis / tickMillis;
+        while (currentTick < nowTick) {
+            currentTick++;
+            // first bring down everything due in the coming span of each level, coarsest first
+            int top = levels.length - 1;
+            if (currentTick % levelSpans[top] == 0 && !overflow.isEmpty()) {
+                ArrayList<Entry<T>> far = new ArrayList<>(overflow);
+                overflow.clear();
+                far.forEach(this::place);
+            }
+            for (int level = top; level >= 1; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    List<Entry<T>> bucket = levels[level][bucketIndex(level, currentTick)];
+                    if (!bucket.isEmpty()) {
+                        ArrayList<Entry<T>> entries = new ArrayList<>(bucket);
+                        bucket.clear();
+                        entries.forEach(this::place);
+                    }
+                }
+            }
+            // then everything in this tick's level-0 bucket has expired
+            List<Entry<T>> bucket = levels[0][bucketIndex(0, currentTick)];
+            if (!bucket.isEmpty()) {
+                for (Entry<T> entry : bucket) {
+                    expired.add(entry.item);
+                }
+                size -= bucket.size();
+                bucket.clear();
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Puts an entry in the finest level whose range covers its deadline.
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        for (int level = 0; level < levels.length; level++) {
+            if (delta < levelSpans[level] * wheelSize) {
+                levels[level][bucketIndex(level, entry.deadlineTick)].add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private int bucketIndex(int level, long tick) {
+        return (int) ((tick / levelSpans[level]) % wheelSize);
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {}
+}
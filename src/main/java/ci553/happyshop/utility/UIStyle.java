@@ -31,8 +31,10 @@ public record UIStyle() {
     public static final int pickerWinWidth = 310;
     public static final int pickerWinHeight = 300;
 
-    public static final int trackerWinWidth = 210;
-    public static final int trackerWinHeight = 300;
+    public static final int trackerWinWidth = 250;
+    public static final int trackerWinHeight = 380;
+    public static final int salesDashboardWinWidth = 420;
+    public static final int salesDashboardWinHeight = 300;
 
     public static final int warehouseWinWidth = 630;
     public static final int warehouseWinHeight = 300;
@@ -40,6 +42,8 @@ public record UIStyle() {
     public static final int AlertSimWinHeight = 170;
     public static final int HistoryWinWidth = 300;
     public static final int HistoryWinHeight = 140;
+    public static final int OrderQueryWinWidth = 560;
+    public static final int OrderQueryWinHeight = 320;
 
     public static final int EmergencyExitWinWidth = 200;
     public static final int EmergencyExitWinHeight = 300;
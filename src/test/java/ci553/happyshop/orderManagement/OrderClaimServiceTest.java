@@ -0,0 +1,98 @@
+package ci553.happyshop.orderManagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderClaimServiceTest {
+
+    //Orders are claimed oldest first, once each, and only the owner can release them.
+    @Test
+    void claimNext_givesEachOrderOnce() {
+        OrderClaimService service = new OrderClaimService();
+        Object picker1 = new Object();
+        Object picker2 = new Object();
+        assertTrue(service.offer(1));
+        assertTrue(service.offer(2));
+        assertFalse(service.offer(1)); // already waiting
+
+        assertEquals(1, service.claimNext(picker1));
+        assertFalse(service.offer(1)); // already owned
+        assertEquals(2, service.claimNext(picker2));
+        assertNull(service.claimNext(picker1));
+
+        assertFalse(service.release(1, picker2));
+        assertSame(picker1, service.ownerOf(1));
+        assertTrue(service.release(1, picker1));
+        assertNull(service.ownerOf(1));
+    }
+
+    //Many pickers claim while new orders keep arriving: every order is claimed exactly once.
+    @Test
+    void concurrentPickers_neverClaimTheSameOrder() throws Exception {
+        final int orders = 200_000;
+        final int pickers = 16;
+        OrderClaimService service = new OrderClaimService();
+        ConcurrentHashMap<Integer, Object> claimedBy = new ConcurrentHashMap<>();
+        AtomicInteger doubleClaims = new AtomicInteger();
+        AtomicInteger claimed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(pickers + 2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < 2; p++) { // two producers, like two customers checking out
+            final int first = p;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int orderId = 1 + first; orderId <= orders; orderId += 2) {
+                    service.offer(orderId);
+                }
+                return null;
+            }));
+        }
+        for (int p = 0; p < pickers; p++) {
+            futures.add(pool.submit(() -> {
+                Object picker = new Object();
+                start.await();
+                while (claimed.get() < orders) {
+                    Integer orderId = service.claimNext(picker);
+                    if (orderId == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    if (claimedBy.putIfAbsent(orderId, picker) != null) {
+                        doubleClaims.incrementAndGet();
+                    }
+                    claimed.incrementAndGet();
+                    if (orderId % 3 == 0) { // some orders are collected (released) straight away
+                        assertTrue(service.release(orderId, picker));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(0, doubleClaims.get());
+        assertEquals(orders, claimed.get());
+        assertEquals(orders, claimedBy.size());
+        assertEquals(0, service.waitingCount());
+        assertNull(service.claimNext(new Object()));
+    }
+}
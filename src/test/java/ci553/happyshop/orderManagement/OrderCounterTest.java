@@ -0,0 +1,95 @@
+package ci553.happyshop.orderManagement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderCounterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path newCounterFile() throws IOException {
+        Path path = tempDir.resolve("orderCounter.txt");
+        Files.writeString(path, "0");
+        return path;
+    }
+
+    //IDs are sequential and the file records the end of the reserved block, not the last ID used.
+    @Test
+    void nextId_handsOutBlockFromMemory() throws IOException {
+        Path path = newCounterFile();
+        OrderCounter counter = new OrderCounter(path, 10);
+
+        assertEquals(1, counter.nextId());
+        assertEquals("10", Files.readString(path));
+        for (int expected = 2; expected <= 10; expected++) {
+            assertEquals(expected, counter.nextId());
+        }
+        assertEquals("10", Files.readString(path)); // no file update inside the block
+
+        assertEquals(11, counter.nextId());
+        assertEquals("20", Files.readString(path));
+    }
+
+    //A crash loses the rest of the block: numbering continues after it, and no ID is reused.
+    @Test
+    void restartAfterCrash_skipsUnusedIdsOfTheBlock() throws IOException {
+        Path path = newCounterFile();
+        OrderCounter beforeCrash = new OrderCounter(path, 10);
+        assertEquals(1, beforeCrash.nextId());
+        assertEquals(2, beforeCrash.nextId());
+        assertEquals(3, beforeCrash.nextId());
+
+        // the process dies here; a new one starts over the same file
+        OrderCounter afterCrash = new OrderCounter(path, 10);
+        assertEquals(11, afterCrash.nextId()); // 4..10 are a gap
+        assertEquals(12, afterCrash.nextId());
+    }
+
+    //Two counters on one file (like two processes sharing the orders folder) never hand out the same ID.
+    @Test
+    void countersSharingAFile_neverOverlap() throws Exception {
+        Path path = newCounterFile();
+        OrderCounter first = new OrderCounter(path, 7);
+        OrderCounter second = new OrderCounter(path, 7);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            OrderCounter counter = (t % 2 == 0) ? first : second;
+            results.add(pool.submit(() -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    ids.add(counter.nextId());
+                }
+                return ids;
+            }));
+        }
+        pool.shutdown();
+
+        Set<Integer> all = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            for (int id : result.get()) {
+                assertTrue(all.add(id), "orderId handed out twice: " + id);
+            }
+        }
+        assertEquals(4000, all.size());
+        int reservedUpTo = Integer.parseInt(Files.readString(path));
+        assertTrue(reservedUpTo >= 4000);
+        assertTrue(all.stream().allMatch(id -> id >= 1 && id <= reservedUpTo));
+    }
+}
@@ -0,0 +1,129 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.storageAccess.OrderStorageLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderQueryIndexTest {
+
+    @TempDir
+    Path dir;
+
+    //Date and product queries return the matching orders oldest first, including late arrivals.
+    @Test
+    void queries_returnMatchingOrdersInTimeOrder() {
+        OrderQueryIndex index = new OrderQueryIndex();
+        index.addOrder(1, 1_000, OrderState.Ordered, List.of("0001", "0007"));
+        index.addOrder(2, 2_000, OrderState.Ordered, List.of("0002"));
+        index.addOrder(4, 4_000, OrderState.Ordered, List.of("0007", "0007"));
+        index.addOrder(3, 1_500, OrderState.Ordered, List.of("0007")); // placed before order 2, arrived late
+        index.stateChanged(4, OrderState.Collected);
+
+        assertArrayEquals(new int[]{1, 3, 2}, index.ordersBetween(1_000, 4_000));
+        assertArrayEquals(new int[]{1, 3, 4}, index.ordersWithProduct("0007", 0, 10_000));
+        assertArrayEquals(new int[]{3}, index.ordersWithProduct("0007", 1_200, 4_000));
+        assertArrayEquals(new int[0], index.ordersWithProduct("0009", 0, 10_000));
+        assertEquals(OrderState.Collected, index.stateOf(4));
+        assertEquals(1_500, index.orderedMillisOf(3));
+        assertNull(index.stateOf(5));
+        assertEquals(4, index.size());
+    }
+
+    //A saved index loads back with its queries, states are corrected from the active orders,
+    //and a file saved for another storage layout or damaged on disk is not used.
+    @Test
+    void savedIndex_loadsBack_andStatesAreReconciled() throws IOException {
+        Path file = dir.resolve("orderQuery.index");
+        OrderQueryIndex index = new OrderQueryIndex();
+        index.addOrder(1, 1_000, OrderState.Collected, List.of("0001", "0007"));
+        index.addOrder(2, 2_000, OrderState.Ordered, List.of("0002"));
+        index.addOrder(3, 1_500, OrderState.Progressing, List.of("0007"));
+        index.copy().save(file, OrderStorageLayout.BINARY, 3);
+        index.addOrder(4, 4_000, OrderState.Ordered, List.of("0007")); // placed after the save
+
+        OrderQueryIndex loaded = new OrderQueryIndex();
+        assertEquals(3, loaded.load(file, OrderStorageLayout.BINARY));
+        assertEquals(3, loaded.size());
+        assertArrayEquals(new int[]{1, 3, 2}, loaded.ordersBetween(0, 10_000));
+        assertArrayEquals(new int[]{1, 3}, loaded.ordersWithProduct("0007", 0, 10_000));
+        assertEquals(1_500, loaded.orderedMillisOf(3));
+
+        loaded.reconcileStates(Map.of(3, OrderState.Progressing)); // order 2 was collected after the save
+        assertEquals(OrderState.Collected, loaded.stateOf(2));
+        assertEquals(OrderState.Progressing, loaded.stateOf(3));
+        loaded.addOrder(4, 4_000, OrderState.Ordered, List.of("0007")); // the orders after it are added on top
+        assertArrayEquals(new int[]{1, 3, 4}, loaded.ordersWithProduct("0007", 0, 10_000));
+
+        assertEquals(0, new OrderQueryIndex().load(file, OrderStorageLayout.JOURNAL));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        OrderQueryIndex damaged = new OrderQueryIndex();
+        assertEquals(0, damaged.load(file, OrderStorageLayout.BINARY));
+        assertEquals(0, damaged.size());
+    }
+
+    //Benchmark: with a million orders, date-range and product queries stay under a millisecond.
+    //Not part of the regular run: mvn test -Dhappyshop.benchmark=true -Dtest=OrderQueryIndexTest
+    @Test
+    @EnabledIfSystemProperty(named = "happyshop.benchmark", matches = "true")
+    void millionOrders_queriesStaySubMillisecond() {
+        final int orders = 1_000_000;
+        final int products = 100;
+        final long start = 1_700_000_000_000L;
+        final long second = 1_000;
+        Random random = new Random(42);
+        OrderQueryIndex index = new OrderQueryIndex();
+        for (int orderId = 1; orderId <= orders; orderId++) { // one order a second, about 11.5 days
+            List<String> productIds = new ArrayList<>();
+            for (int item = random.nextInt(4); item >= 0; item--) {
+                productIds.add(String.format("%04d", 1 + random.nextInt(products)));
+            }
+            index.addOrder(orderId, start + orderId * second, OrderState.Collected, productIds);
+        }
+        assertEquals(orders, index.size());
+
+        final long week = 7 * 24 * 3600 * second;
+        final long end = start + orders * second;
+        final int queries = 2_000;
+        long found = 0;
+        for (int warmUp = 0; warmUp < queries; warmUp++) {
+            found += index.ordersWithProduct(String.format("%04d", 1 + warmUp % products), end - week, end).length;
+            found += index.ordersBetween(end - week + warmUp * second, end - week + warmUp * second + 3600 * second).length;
+        }
+
+        long productNanos = 0;
+        long rangeNanos = 0;
+        for (int q = 0; q < queries; q++) {
+            String productId = String.format("%04d", 1 + q % products);
+            long t0 = System.nanoTime();
+            int[] lastWeek = index.ordersWithProduct(productId, end - week, end);
+            long t1 = System.nanoTime();
+            long from = start + random.nextInt(orders - 3600) * second;
+            int[] oneHour = index.ordersBetween(from, from + 3600 * second);
+            long t2 = System.nanoTime();
+            productNanos += t1 - t0;
+            rangeNanos += t2 - t1;
+            assertTrue(lastWeek.length > 0);
+            assertEquals(3600, oneHour.length);
+            found += lastWeek.length;
+        }
+        double productMillis = productNanos / 1e6 / queries;
+        double rangeMillis = rangeNanos / 1e6 / queries;
+        assertTrue(found > 0);
+        assertTrue(productMillis < 1.0, "product query took " + productMillis + " ms");
+        assertTrue(rangeMillis < 1.0, "date range query took " + rangeMillis + " ms");
+    }
+}
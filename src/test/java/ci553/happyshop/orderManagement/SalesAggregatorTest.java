@@ -0,0 +1,100 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SalesAggregatorTest {
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long BASE = 1_000 * HOUR; // the start of a clock hour
+
+    //70 products (more than the 64 initial slots) sold across a minute and an hour boundary; the sliding
+    //figures drop minute by minute, go back to zero after a jump past the window, then count again.
+    @Test
+    void slidingAndHourlyFigures_followTheClock() {
+        SalesAggregator aggregator = new SalesAggregator(3, 5); // 3 clock hours, a 5-minute sliding window
+        for (int i = 0; i < 70; i++) {
+            long at = i < 40 ? BASE + 58 * MINUTE + i * 100     // 40 orders in minute 58
+                    : i < 55 ? BASE + 59 * MINUTE + 30_000     // 15 in minute 59
+                    : BASE + 61 * MINUTE + 10_000;             // 15 in minute 1 of the next hour
+            aggregator.orderPlaced(order(i, String.format("P%03d", i), 2, 1.50), at);
+        }
+        aggregator.stateReached(OrderState.Progressing, BASE + 61 * MINUTE + 20_000);
+        aggregator.stateReached(OrderState.Collected, BASE + 62 * MINUTE);
+
+        // minute 62: the window is minutes 58..62, nothing has left it yet
+        SalesAggregator.Snapshot snapshot = aggregator.snapshot(BASE + 62 * MINUTE + 30_000);
+        assertEquals(70, snapshot.products().size());
+        assertEquals(140, slidingUnits(snapshot));
+        assertEquals(70 * 300, slidingRevenue(snapshot));
+        assertArrayEquals(new long[]{70, 1, 1}, snapshot.slidingByState());
+        assertEquals(15 * 2, unitsThisHour(snapshot)); // only the orders of the current hour
+        assertEquals(2, snapshot.hours().size());
+        SalesAggregator.HourFigures first = snapshot.hours().get(0);
+        SalesAggregator.HourFigures second = snapshot.hours().get(1);
+        assertEquals(BASE, first.hourStartMillis());
+        assertEquals(55, first.orders());
+        assertEquals(110, first.units());
+        assertEquals(55 * 300, first.revenuePence());
+        assertEquals(BASE + HOUR, second.hourStartMillis());
+        assertEquals(15, second.orders());
+        assertArrayEquals(new long[]{15, 1, 1}, second.ordersByState());
+
+        // minute 63: minute 58 has left the window
+        snapshot = aggregator.snapshot(BASE + 63 * MINUTE);
+        assertEquals(60, slidingUnits(snapshot));
+        assertArrayEquals(new long[]{30, 1, 1}, snapshot.slidingByState());
+        assertEquals(0, figuresOf(snapshot, "P000").unitsSliding());
+        assertEquals(2, figuresOf(snapshot, "P069").unitsSliding());
+
+        // a jump of more than the window: every sliding total is back to zero, the hours are kept
+        snapshot = aggregator.snapshot(BASE + 75 * MINUTE);
+        assertEquals(0, slidingUnits(snapshot));
+        assertEquals(0, slidingRevenue(snapshot));
+        assertArrayEquals(new long[3], snapshot.slidingByState());
+        assertEquals(2, snapshot.hours().size());
+
+        // the reused buckets count again from zero
+        aggregator.orderPlaced(order(70, "P000", 1, 2.00), BASE + 76 * MINUTE);
+        snapshot = aggregator.snapshot(BASE + 76 * MINUTE + 1);
+        assertEquals(1, slidingUnits(snapshot));
+        assertEquals(200, figuresOf(snapshot, "P000").revenuePenceSliding());
+        assertEquals("P000", snapshot.products().get(0).productId()); // highest sliding revenue first
+        assertEquals(16, snapshot.hours().get(1).orders());
+
+        // three hours later both hours have left the tumbling window as well
+        snapshot = aggregator.snapshot(BASE + 4 * HOUR + MINUTE);
+        assertEquals(List.of(), snapshot.hours());
+        assertEquals(0, slidingUnits(snapshot));
+        assertEquals(0, unitsThisHour(snapshot));
+    }
+
+    private static Order order(int orderId, String productId, int quantity, double unitPrice) {
+        Product product = new Product(productId, "Product " + productId, productId + ".jpg", unitPrice, 100);
+        product.setOrderedQuantity(quantity);
+        return new Order(orderId, OrderState.Ordered, "", new ArrayList<>(List.of(product)));
+    }
+
+    private static long slidingUnits(SalesAggregator.Snapshot snapshot) {
+        return snapshot.products().stream().mapToLong(SalesAggregator.ProductFigures::unitsSliding).sum();
+    }
+
+    private static long slidingRevenue(SalesAggregator.Snapshot snapshot) {
+        return snapshot.products().stream().mapToLong(SalesAggregator.ProductFigures::revenuePenceSliding).sum();
+    }
+
+    private static long unitsThisHour(SalesAggregator.Snapshot snapshot) {
+        return snapshot.products().stream().mapToLong(SalesAggregator.ProductFigures::unitsThisHour).sum();
+    }
+
+    private static SalesAggregator.ProductFigures figuresOf(SalesAggregator.Snapshot snapshot, String productId) {
+        return snapshot.products().stream().filter(p -> p.productId().equals(productId)).findFirst().orElseThrow();
+    }
+}
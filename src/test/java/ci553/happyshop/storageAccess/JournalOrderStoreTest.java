@@ -0,0 +1,218 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class JournalOrderStoreTest {
+
+    @TempDir
+    Path journalDir;
+
+    //A write that fails halfway is cut off again, so the orders written after it survive a replay.
+    @Test
+    void failedWrite_isRolledBack_andLaterOrdersReplay() throws IOException {
+        FaultyJournal journal = new FaultyJournal(journalDir);
+        journal.createOrder(order(1));
+
+        journal.failNextWrite = true; // half of order 2's record reaches the file, then the write fails
+        assertThrows(IOException.class, () -> journal.createOrder(order(2)));
+
+        journal.createOrder(order(3));
+        assertTrue(journal.changeState(3, OrderState.Progressing));
+        journal.close();
+
+        JournalOrderStore replayed = new JournalOrderStore(journalDir, 1024 * 1024);
+        try {
+            assertEquals(List.of(1, 3), new ArrayList<>(replayed.loadActiveOrders().keySet()));
+            assertEquals(OrderState.Progressing, replayed.loadActiveOrders().get(3));
+            assertTrue(replayed.readOrder(3).contains("Order ID: 3"));
+            assertThrows(IOException.class, () -> replayed.readOrder(2));
+        } finally {
+            replayed.close();
+        }
+    }
+
+    //Closing while orders are being written: every caller gets an answer, and what was confirmed replays.
+    @Test
+    void closeDuringAppends_answersEveryCaller_andKeepsConfirmedOrders() throws Exception {
+        JournalOrderStore journal = new JournalOrderStore(journalDir, 1024 * 1024);
+        Set<Integer> confirmed = ConcurrentHashMap.newKeySet();
+        AtomicInteger answered = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        for (int i = 1; i <= 400; i++) {
+            int id = i;
+            callers.execute(() -> {
+                try {
+                    journal.createOrder(order(id));
+                    confirmed.add(id);
+                } catch (IOException e) {
+                    // closed before or while it was written
+                }
+                answered.incrementAndGet();
+            });
+        }
+        Thread.sleep(20);
+        journal.close(); // no interrupt: the channel stays usable for the final force
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(400, answered.get());
+        assertThrows(IOException.class, () -> journal.createOrder(order(401)));
+
+        JournalOrderStore replayed = new JournalOrderStore(journalDir, 1024 * 1024);
+        try {
+            assertTrue(replayed.loadActiveOrders().keySet().containsAll(confirmed));
+        } finally {
+            replayed.close();
+        }
+    }
+
+    private static Order order(int id) {
+        Product product = new Product("0001", "TV", "0001.jpg", 12.01, 100);
+        product.setOrderedQuantity(1);
+        return new Order(id, OrderState.Ordered, "2026-01-01 10:00:00", new ArrayList<>(List.of(product)));
+    }
+
+    // A journal whose segment channels can be told to fail their next write.
+    private static final class FaultyJournal extends JournalOrderStore {
+        volatile boolean failNextWrite = false;
+
+        FaultyJournal(Path journalDir) throws IOException {
+            super(journalDir, 1024 * 1024);
+        }
+
+        @Override
+        FileChannel openChannel(Path path, OpenOption... options) throws IOException {
+            return new FaultyChannel(FileChannel.open(path, options), this);
+        }
+    }
+
+    // Passes everything to a real channel, except a gathering write while failNextWrite is set:
+    // that one writes half of its first buffer and throws, like a disk that fills up mid-record.
+    private static final class FaultyChannel extends FileChannel {
+        private final FileChannel channel;
+        private final FaultyJournal journal;
+
+        FaultyChannel(FileChannel channel, FaultyJournal journal) {
+            this.channel = channel;
+            this.journal = journal;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (journal.failNextWrite) {
+                journal.failNextWrite = false;
+                ByteBuffer half = srcs[offset].duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                channel.write(half);
+                throw new IOException("Injected write failure");
+            }
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderCodecTest {
+
+    @TempDir
+    Path storeDir;
+
+    //An order survives encode and decode with its millisecond order time, its items and their quantities.
+    @Test
+    void encodeDecode_roundTrip() throws IOException {
+        ArrayList<Product> products = new ArrayList<>();
+        products.add(product("0001", "40 inch TV", 269.00, 1));
+        products.add(product("0007", "USB drive £ é", 6.99, 300)); // non-ASCII text, a two-byte varint
+        String longDescription = "x".repeat(200);
+        products.add(product("0012", longDescription, 0.5, 2));
+        Order order = new Order(12, OrderState.Ordered, 1_767_261_600_123L, products);
+
+        byte[] record = OrderCodec.encode(order);
+        Order decoded = OrderCodec.decode(ByteBuffer.wrap(record));
+
+        assertEquals(12, decoded.getOrderId());
+        assertEquals(OrderState.Ordered, decoded.getState());
+        assertEquals(1_767_261_600_123L, decoded.getOrderedMillis()); // the milliseconds are kept
+        assertEquals(order.getOrderedDateTime(), decoded.getOrderedDateTime());
+        assertEquals("", decoded.getProgressingDateTime());
+        assertEquals(3, decoded.getProductList().size());
+        for (int i = 0; i < products.size(); i++) {
+            Product expected = products.get(i);
+            Product actual = decoded.getProductList().get(i);
+            assertEquals(expected.getProductId(), actual.getProductId());
+            assertEquals(expected.getProductDescription(), actual.getProductDescription());
+            assertEquals(expected.getUnitPrice(), actual.getUnitPrice());
+            assertEquals(expected.getOrderedQuantity(), actual.getOrderedQuantity());
+        }
+        assertEquals(order.orderDetails(), OrderCodec.toText(ByteBuffer.wrap(record)));
+        assertEquals(record.length, OrderCodec.encode(decoded).length);
+    }
+
+    //A state byte that is not an OrderState is reported as an IOException, and the file is left out of the index.
+    @Test
+    void invalidStateByte_isRejected_andTheFileSkipped() throws IOException {
+        byte[] record = OrderCodec.encode(new Order(5, OrderState.Ordered, 1_000L, new ArrayList<>(List.of(
+                product("0001", "TV", 12.01, 1)))));
+        record[OrderCodec.OFFSET_STATE] = 7;
+        assertThrows(IOException.class, () -> OrderCodec.state(ByteBuffer.wrap(record)));
+        assertThrows(IOException.class, () -> OrderCodec.decode(ByteBuffer.wrap(record)));
+
+        Files.write(storeDir.resolve("5" + BinaryOrderStore.FILE_EXTENSION), record);
+        Files.write(storeDir.resolve("6" + BinaryOrderStore.FILE_EXTENSION), OrderCodec.encode(
+                new Order(6, OrderState.Ordered, 2_000L, new ArrayList<>(List.of(product("0002", "Radio", 29.99, 1))))));
+        BinaryOrderStore store = new BinaryOrderStore(storeDir);
+        assertEquals(List.of(6), new ArrayList<>(store.loadActiveOrders().keySet()));
+    }
+
+    private static Product product(String id, String description, double price, int quantity) {
+        Product product = new Product(id, description, id + ".jpg", price, 100);
+        product.setOrderedQuantity(quantity);
+        return product;
+    }
+}
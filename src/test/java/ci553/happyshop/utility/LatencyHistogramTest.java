@@ -0,0 +1,55 @@
+package ci553.happyshop.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LatencyHistogramTest {
+
+    //Small values are exact; percentiles of 1..100 are the values themselves.
+    @Test
+    void smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram(3_600_000, 2);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(95, histogram.getValueAtPercentile(95));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(100, histogram.getMaxValue());
+    }
+
+    //Over a wide range of values, every percentile is within 1% of the exact one (2 significant digits).
+    @Test
+    void percentiles_stayWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram(7 * 24 * 3_600_000L, 2);
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(24 * 3_600_000.0)); // 1 ms to a day
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{50, 90, 95, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long measured = histogram.getValueAtPercentile(percentile);
+            assertTrue(measured >= exact, "p" + percentile + " " + measured + " below " + exact);
+            assertTrue(measured <= exact * 1.01 + 1, "p" + percentile + " " + measured + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxValue());
+
+        LatencyHistogram sum = new LatencyHistogram(7 * 24 * 3_600_000L, 2);
+        sum.add(histogram);
+        assertEquals(histogram.getValueAtPercentile(99), sum.getValueAtPercentile(99));
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
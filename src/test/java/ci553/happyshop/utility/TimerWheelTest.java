@@ -0,0 +1,80 @@
+package ci553.happyshop.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TimerWheelTest {
+
+    //Deadlines in level 0, exactly on level boundaries, in level 1 and in the overflow each expire on their own tick.
+    @Test
+    void deadlinesAcrossLevels_expireOnTheirTick() {
+        // 10 ms ticks, 4 buckets, 2 levels: level 0 covers 4 ticks, level 1 covers 16, the rest overflows
+        long start = 1_000;
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 4, 2, start);
+        long startTick = start / 10;
+        long[] deadlineTicks = {
+                startTick + 1, startTick + 3,                    // level 0
+                startTick + 4, startTick + 5, startTick + 15,    // level 1, around its boundaries
+                startTick + 16, startTick + 17, startTick + 31,  // just beyond level 1: overflow
+                startTick + 64, startTick + 100                  // overflow, several top-level turns away
+        };
+        for (long tick : deadlineTicks) {
+            wheel.add(tick, tick * 10 + 5); // anywhere inside the tick
+        }
+        assertEquals(deadlineTicks.length, wheel.size());
+
+        for (long tick = startTick + 1; tick <= startTick + 110; tick++) {
+            List<Long> expired = wheel.advanceTo(tick * 10);
+            for (Long deadlineTick : expired) {
+                assertEquals(tick, deadlineTick.longValue(), "item due at tick " + deadlineTick + " expired at " + tick);
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    //Random deadlines up to beyond the overflow range expire on their tick, also when time jumps several ticks.
+    @Test
+    void randomDeadlines_expireOnTheirTick() {
+        long start = 123_456;
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 8, 3, start);
+        long startTick = start / 10;
+        Random random = new Random(20);
+        List<Long> added = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadlineTick = startTick + 1 + random.nextInt(2_000); // levels cover 512 ticks
+            wheel.add(deadlineTick, deadlineTick * 10 + random.nextInt(10));
+            added.add(deadlineTick);
+        }
+
+        List<Long> expiredAll = new ArrayList<>();
+        long now = startTick;
+        while (now < startTick + 2_100) {
+            long previous = now;
+            now += 1 + random.nextInt(5);
+            List<Long> expired = wheel.advanceTo(now * 10);
+            for (Long deadlineTick : expired) {
+                assertTrue(deadlineTick > previous && deadlineTick <= now,
+                        "item due at tick " + deadlineTick + " expired between " + previous + " and " + now);
+            }
+            expiredAll.addAll(expired);
+        }
+        added.sort(null);
+        assertEquals(added, expiredAll); // every item once, in deadline order
+        assertEquals(0, wheel.size());
+    }
+
+    //A deadline already in the past expires on the next tick.
+    @Test
+    void pastDeadline_expiresOnNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 16, 2, 5_000);
+        wheel.add("late", 1_000);
+        assertEquals(List.of(), wheel.advanceTo(5_099));
+        assertEquals(List.of("late"), wheel.advanceTo(5_100));
+    }
+}